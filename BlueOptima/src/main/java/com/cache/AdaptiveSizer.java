@@ -0,0 +1,420 @@
+package com.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Class AdaptiveSizer tunes the size of a group of caches sharing a memory
+ * budget, expressed as a total number of elements, so that the memory goes to
+ * the caches which make the best use of it.
+ * <p>
+ * Every cache is tuned by hill climbing on its hit rate. At every round the
+ * hit rate over the last interval is compared with the one before the last
+ * size change: a cache keeps growing while growing pays, by at least the
+ * tolerance, and otherwise shrinks to give memory back, as long as shrinking
+ * costs less than the tolerance. Every reversal halves the step, so that the
+ * size settles around the knee of the hit rate curve. The size of every cache
+ * stays within its own minimum and maximum size, which default to those of the
+ * sizer.
+ * <p>
+ * The growth of the caches is granted from the budget in order of benefit, the
+ * number of hits a cache gained per interval for every element it was given,
+ * multiplied by the weight of the cache.
+ * When the budget is exhausted, the cache with the lowest benefit is shrunk to
+ * make room for a cache which benefits more. An instance of this class runs as
+ * a daemon thread which runs a round every interval.
+ */
+public class AdaptiveSizer extends Thread {
+
+	/** The smallest change of the hit rate which is not taken for noise. */
+	private static final double TOLERANCE = 0.01;
+
+	/** The number of lookups below which an interval is not conclusive. */
+	private static final long MIN_SAMPLE = 100;
+
+	/** The number of steps the initial step takes from minimum to maximum. */
+	private static final int INITIAL_STEPS = 10;
+
+	/** The default minimum size of a cache. */
+	private final int minSize;
+
+	/** The default maximum size of a cache. */
+	private final int maxSize;
+
+	/** The time interval(in seconds) between two rounds. */
+	private final int adaptInterval;
+
+	/** The total number of elements the caches may hold. */
+	private volatile long budget;
+
+	/** The climbers, by cache. */
+	private final Map<Cache<?>, Climber> climbers = new ConcurrentHashMap<Cache<?>, Climber>();
+
+	/**
+	 * Instantiates a new adaptive sizer.
+	 *
+	 * @param minSize
+	 *            the default minimum size of a cache
+	 * @param maxSize
+	 *            the default maximum size of a cache
+	 * @param budget
+	 *            the total number of elements the caches may hold
+	 * @param adaptInterval
+	 *            the time interval(in seconds) between two rounds
+	 */
+	public AdaptiveSizer(int minSize, int maxSize, long budget, int adaptInterval) {
+		checkBounds(minSize, maxSize);
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.budget = budget;
+		this.adaptInterval = adaptInterval;
+		setDaemon(true);
+		setName("Adaptive Sizer");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		while (!isInterrupted()) {
+			try {
+				sleep(adaptInterval * 1000L);
+			} catch (InterruptedException e) {
+				/*
+				 * Interrupted by shutdown(), stop adapting
+				 */
+				break;
+			}
+			adapt();
+		}
+	}
+
+	/**
+	 * Stop adapting. The caches keep their current size.
+	 */
+	public void shutdown() {
+		interrupt();
+	}
+
+	/**
+	 * Start tuning a cache, which is set to the minimum size and grows from
+	 * there as it proves useful.
+	 *
+	 * @param cache
+	 *            the cache
+	 */
+	public void addCache(Cache<?> cache) {
+		addCache(cache, 1.0);
+	}
+
+	/**
+	 * Start tuning a cache with a weight. The benefit of a cache is
+	 * multiplied by its weight when the budget is shared, so that a cache
+	 * whose hits are worth more, for instance because its misses are more
+	 * expensive, gets a larger share.
+	 *
+	 * @param cache
+	 *            the cache
+	 * @param weight
+	 *            the relative weight of the cache, 1.0 by default
+	 */
+	public void addCache(Cache<?> cache, double weight) {
+		addCache(cache, weight, minSize, maxSize);
+	}
+
+	/**
+	 * Start tuning a cache with a weight, between its own minimum and maximum
+	 * size.
+	 *
+	 * @param cache
+	 *            the cache
+	 * @param weight
+	 *            the relative weight of the cache, 1.0 by default
+	 * @param cacheMinSize
+	 *            the minimum size of the cache
+	 * @param cacheMaxSize
+	 *            the maximum size of the cache
+	 */
+	public void addCache(Cache<?> cache, double weight, int cacheMinSize, int cacheMaxSize) {
+		checkBounds(cacheMinSize, cacheMaxSize);
+		cache.setCacheSize(cacheMinSize);
+		climbers.put(cache, new Climber(cache, weight, cacheMinSize, cacheMaxSize));
+	}
+
+	/**
+	 * Change the minimum and maximum size of a tuned cache. Its size is
+	 * brought within the new bounds right away.
+	 *
+	 * @param cache
+	 *            the cache
+	 * @param cacheMinSize
+	 *            the minimum size of the cache
+	 * @param cacheMaxSize
+	 *            the maximum size of the cache
+	 */
+	public synchronized void setBounds(Cache<?> cache, int cacheMinSize, int cacheMaxSize) {
+		checkBounds(cacheMinSize, cacheMaxSize);
+		Climber climber = climbers.get(cache);
+		if (climber == null) {
+			return;
+		}
+		climber.minSize = cacheMinSize;
+		climber.maxSize = cacheMaxSize;
+		int size = cache.getCacheSize();
+		int bounded = Math.max(cacheMinSize, Math.min(cacheMaxSize, size));
+		if (bounded != size) {
+			climber.resize(bounded);
+		}
+	}
+
+	/**
+	 * Stop tuning a cache, giving its share of the budget back.
+	 *
+	 * @param cache
+	 *            the cache
+	 */
+	public void removeCache(Cache<?> cache) {
+		climbers.remove(cache);
+	}
+
+	/**
+	 * Gets the budget.
+	 *
+	 * @return the total number of elements the caches may hold
+	 */
+	public long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Change the budget. If the caches hold more than the new budget, they
+	 * are all shrunk in proportion right away, down to their minimum size.
+	 *
+	 * @param budget
+	 *            the total number of elements the caches may hold
+	 */
+	public synchronized void setBudget(long budget) {
+		this.budget = budget;
+		long total = totalSize();
+		if (total > budget) {
+			double factor = (double) budget / total;
+			for (Climber climber : climbers.values()) {
+				climber.resize(Math.max(climber.minSize, (int) (climber.cache.getCacheSize() * factor)));
+			}
+		}
+	}
+
+	/**
+	 * Run one round of the adaptation: let every cache propose a new size,
+	 * apply the shrinks, then grant the growths from the budget in order of
+	 * benefit.
+	 */
+	public synchronized void adapt() {
+		List<Climber> growing = new ArrayList<Climber>();
+		for (Climber climber : climbers.values()) {
+			int target = climber.propose();
+			if (target < climber.cache.getCacheSize()) {
+				climber.resize(target);
+			} else if (target > climber.cache.getCacheSize()) {
+				climber.target = target;
+				growing.add(climber);
+			}
+		}
+		Collections.sort(growing, Comparator.comparingDouble((Climber c) -> c.benefit).reversed());
+		for (Climber climber : growing) {
+			int size = climber.cache.getCacheSize();
+			long available = budget - totalSize();
+			long need = climber.target - size;
+			if (need > available) {
+				available += reclaim(climber, need - available);
+			}
+			if (available > 0) {
+				climber.resize((int) (size + Math.min(need, available)));
+			} else {
+				climber.denied();
+			}
+		}
+	}
+
+	/**
+	 * Shrink the cache which benefits the least from its memory, if it
+	 * benefits less than the given cache, to make room for the given cache.
+	 *
+	 * @param grower
+	 *            the cache needing room
+	 * @param needed
+	 *            the number of elements needed
+	 * @return the number of elements reclaimed
+	 */
+	private int reclaim(Climber grower, long needed) {
+		Climber donor = null;
+		for (Climber climber : climbers.values()) {
+			if (climber != grower && climber.cache.getCacheSize() > climber.minSize
+					&& climber.benefit < grower.benefit && (donor == null || climber.benefit < donor.benefit)) {
+				donor = climber;
+			}
+		}
+		if (donor == null) {
+			return 0;
+		}
+		int size = donor.cache.getCacheSize();
+		int reclaimed = (int) Math.min(needed, size - donor.minSize);
+		donor.resize(size - reclaimed);
+		return reclaimed;
+	}
+
+	/**
+	 * Check the minimum and maximum size of a cache.
+	 *
+	 * @param cacheMinSize
+	 *            the minimum size
+	 * @param cacheMaxSize
+	 *            the maximum size
+	 */
+	private static void checkBounds(int cacheMinSize, int cacheMaxSize) {
+		if (cacheMinSize <= 0 || cacheMaxSize < cacheMinSize) {
+			throw new IllegalArgumentException("Expected 0 < minSize <= maxSize");
+		}
+	}
+
+	/**
+	 * Return the total size of the tuned caches.
+	 *
+	 * @return the total size
+	 */
+	private long totalSize() {
+		long total = 0;
+		for (Climber climber : climbers.values()) {
+			total += climber.cache.getCacheSize();
+		}
+		return total;
+	}
+
+	/**
+	 * The Class Climber holds the hill climbing state of one cache.
+	 */
+	private class Climber {
+
+		/** The cache. */
+		final Cache<?> cache;
+
+		/** The relative weight of the cache. */
+		final double weight;
+
+		/** The minimum size of the cache. */
+		int minSize;
+
+		/** The maximum size of the cache. */
+		int maxSize;
+
+		/** The next size change, whose sign is the direction of the climb. */
+		int step;
+
+		/** The hit count at the end of the last interval. */
+		long lastHits;
+
+		/** The request count at the end of the last interval. */
+		long lastRequests;
+
+		/** The hit rate measured before the last size change. */
+		double baseline = Double.NaN;
+
+		/** The size change applied since the baseline was measured. */
+		int change;
+
+		/** The weighted hits gained per interval for every element added. */
+		double benefit;
+
+		/** The size proposed in the current round. */
+		int target;
+
+		/**
+		 * Instantiates a new climber.
+		 *
+		 * @param cache
+		 *            the cache
+		 * @param weight
+		 *            the relative weight of the cache
+		 * @param minSize
+		 *            the minimum size of the cache
+		 * @param maxSize
+		 *            the maximum size of the cache
+		 */
+		Climber(Cache<?> cache, double weight, int minSize, int maxSize) {
+			this.cache = cache;
+			this.weight = weight;
+			this.minSize = minSize;
+			this.maxSize = maxSize;
+			this.step = Math.max(1, (maxSize - minSize) / INITIAL_STEPS);
+			this.lastHits = cache.getStats().getHitCount();
+			this.lastRequests = cache.getStats().getRequestCount();
+		}
+
+		/**
+		 * Measure the hit rate over the last interval and propose a new size.
+		 *
+		 * @return the proposed size, the current size to keep it
+		 */
+		int propose() {
+			int size = cache.getCacheSize();
+			long hits = cache.getStats().getHitCount();
+			long requests = cache.getStats().getRequestCount();
+			if (requests - lastRequests < MIN_SAMPLE) {
+				return size;
+			}
+			double hitRate = (double) (hits - lastHits) / (requests - lastRequests);
+			if (change != 0 && !Double.isNaN(baseline)) {
+				double gain = hitRate - baseline;
+				benefit = weight * gain * (requests - lastRequests) / change;
+				boolean grew = change > 0;
+				boolean paid = grew ? gain >= TOLERANCE : gain > -TOLERANCE;
+				/*
+				 * Keep growing while it pays and keep shrinking while it
+				 * doesn't cost, otherwise turn back with a smaller step
+				 */
+				if (!paid) {
+					step = grew ? -Math.max(1, Math.abs(step) / 2) : Math.max(1, Math.abs(step) / 2);
+				} else {
+					step = grew ? Math.abs(step) : -Math.abs(step);
+				}
+			}
+			lastHits = hits;
+			lastRequests = requests;
+			baseline = hitRate;
+			change = 0;
+			int target = Math.max(minSize, Math.min(maxSize, size + step));
+			if (target == size) {
+				/*
+				 * At a bound, probe the other direction next time
+				 */
+				step = -step;
+			}
+			return target;
+		}
+
+		/**
+		 * Apply a new size.
+		 *
+		 * @param size
+		 *            the size
+		 */
+		void resize(int size) {
+			change += size - cache.getCacheSize();
+			cache.setCacheSize(size);
+		}
+
+		/**
+		 * Record that the proposed growth was denied for lack of budget.
+		 */
+		void denied() {
+			change = 0;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The Class BloomFilter is a compact set of keys which may answer that it
+ * contains a key it doesn't contain, at the chosen false positive rate, but
+ * never that it doesn't contain a key it does. Set as the existence filter of
+ * a cache (see {@link Cache#setExistenceFilter(BloomFilter)}) and fed every key
+ * of the underlying store, it answers in memory most lookups of keys which the
+ * store doesn't have.
+ * <p>
+ * Keys can't be removed from the filter, so a key deleted from the store is
+ * still reported as possibly present. The filter is thread safe and never
+ * locks.
+ */
+public class BloomFilter {
+
+	/** The bits, 64 per word. */
+	private final AtomicLongArray bits;
+
+	/** The number of bits. */
+	private final long bitCount;
+
+	/** The number of bits set for every key. */
+	private final int hashCount;
+
+	/**
+	 * Instantiates a new Bloom filter sized for the given number of keys.
+	 *
+	 * @param expectedKeys
+	 *            the number of keys expected to be added
+	 * @param falsePositiveRate
+	 *            the fraction of absent keys reported as possibly present once
+	 *            the expected number of keys has been added, between 0 and 1
+	 */
+	public BloomFilter(long expectedKeys, double falsePositiveRate) {
+		if (expectedKeys <= 0) {
+			throw new IllegalArgumentException("expectedKeys must be positive");
+		}
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+		}
+		long optimalBits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+		bits = new AtomicLongArray(Math.max(words, 1));
+		bitCount = (long) bits.length() * 64;
+		hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+	}
+
+	/**
+	 * Add a key to the filter.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	public void put(CacheKey cacheKey) {
+		long hash = cacheKey.hash64();
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < hashCount; i++) {
+			long bit = index(h1 + i * h2);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current = bits.get(word);
+			while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+				current = bits.get(word);
+			}
+		}
+	}
+
+	/**
+	 * Check whether a key may have been added to the filter.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 * @return false if the key has certainly not been added, true if it may
+	 *         have been
+	 */
+	public boolean mightContain(CacheKey cacheKey) {
+		long hash = cacheKey.hash64();
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < hashCount; i++) {
+			long bit = index(h1 + i * h2);
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the number of bits set for every key.
+	 *
+	 * @return the hash count
+	 */
+	public int getHashCount() {
+		return hashCount;
+	}
+
+	/**
+	 * Gets the size of the filter.
+	 *
+	 * @return the number of bits
+	 */
+	public long getBitCount() {
+		return bitCount;
+	}
+
+	/**
+	 * Map a combined hash to a bit of the filter.
+	 *
+	 * @param combinedHash
+	 *            the combined hash
+	 * @return the bit index
+	 */
+	private long index(int combinedHash) {
+		return (combinedHash & 0xffffffffL) % bitCount;
+	}
+}
@@ -1,19 +1,41 @@
 package com.cache;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Cache is the abstract base class for all caches which allow an application to
  * maintain a cache for itself. The cache entries are manually added using
  * {@link #insert(CacheElement)}, and are stored in the cache until removed
  * manually or become invalidated based on the timeToLive property.
+ * <p>
+ * The elements of a cache can be traversed with {@link #iterator()},
+ * {@link #stream()} or {@link #parallelStream()} while it is in use, without
+ * copying it and without disturbing its eviction order.
+ * <p>
+ * The lookups of keys the underlying store doesn't hold can be answered in
+ * memory too, with negative caching ({@link #setNegativeCaching(int, int)})
+ * and an existence filter ({@link #setExistenceFilter(BloomFilter)}). Large
+ * values can be stored compressed
+ * ({@link #setValueCompression(ValueCodec, int)}).
  * 
  * @param <V>
  *            the value type for all cache elements stored in it.
  */
-public abstract class Cache<V> {
+public abstract class Cache<V> implements Iterable<CacheElement<V>> {
 
 	/** The cache name. */
 	protected String cacheName;
@@ -25,7 +47,46 @@ public abstract class Cache<V> {
 	protected int cacheSize;
 
 	/** The time to live. */
-	protected int timeToLive;
+	protected volatile int timeToLive;
+
+	/** The point in time from which the time to live is measured. */
+	protected volatile ExpiryMode expiryMode = ExpiryMode.AFTER_ACCESS;
+
+	/** The function computing the time to live of every element, if any. */
+	protected volatile Expiry<V> expiry;
+
+	/** How strongly the values of the elements are held. */
+	protected volatile ValueStrength valueStrength = ValueStrength.STRONG;
+
+	/** The queue of the soft or weak value references cleared by the GC. */
+	protected final ReferenceQueue<V> referenceQueue = new ReferenceQueue<V>();
+
+	/** The writer writing the changes to the underlying store, if any. */
+	protected volatile CacheWriter<V> cacheWriter;
+
+	/** The number of lookups which found their element, and which didn't. */
+	protected final CacheStats stats = new CacheStats();
+
+	/** The recorder of the accesses to the cache, if recording. */
+	protected volatile TraceRecorder traceRecorder;
+
+	/** The keys known to be absent from the store, if negative caching is on. */
+	protected volatile NegativeCache negativeCache;
+
+	/** The filter of the keys known to exist in the store, if any. */
+	protected volatile BloomFilter existenceFilter;
+
+	/** The compressor of the large values, if compression is on. */
+	protected volatile ValueCompressor valueCompressor;
+
+	/** The dispatcher delivering the events of the cache to its listeners. */
+	CacheEventDispatcher<V> eventDispatcher = new CacheEventDispatcher<V>();
+
+	/** The events raised while holding the lock of the cache, guarded by it. */
+	private List<CacheEvent<V>> pendingEvents = new ArrayList<CacheEvent<V>>();
+
+	/** The flag to indicate whether the cache has been closed. */
+	private volatile boolean closed;
 
 	/**
 	 * Insert a new element in the cache.
@@ -33,7 +94,20 @@ public abstract class Cache<V> {
 	 * @param cacheElement
 	 *            the cache element to be inserted
 	 */
-	public abstract void insert(CacheElement<V> cacheElement);
+	public void insert(CacheElement<V> cacheElement) {
+		insert(cacheElement, true);
+	}
+
+	/**
+	 * Insert a new element in the cache, writing it to the store through the
+	 * cache writer unless it has been read from the store.
+	 *
+	 * @param cacheElement
+	 *            the cache element to be inserted
+	 * @param writeThrough
+	 *            whether to write the element through the cache writer
+	 */
+	protected abstract void insert(CacheElement<V> cacheElement, boolean writeThrough);
 
 	/**
 	 * Retrieve the element with the given key from the cache.
@@ -58,6 +132,547 @@ public abstract class Cache<V> {
 	 */
 	public abstract void removeAllExpired();
 
+	/**
+	 * Remove all the elements from the cache.
+	 */
+	public abstract void clear();
+
+	/**
+	 * Gets the maximum number of elements allowed in the cache.
+	 *
+	 * @return the cache size
+	 */
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * Gets the time to live of the elements which don't have their own.
+	 *
+	 * @return the time to live(in minutes)
+	 */
+	public int getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * Change the time to live of the elements inserted from now on which
+	 * don't have their own. The elements already in the cache keep theirs.
+	 *
+	 * @param timeToLive
+	 *            the time to live(in minutes), 0 for elements which live
+	 *            indefinitely
+	 */
+	public void setTimeToLive(int timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Change the maximum number of elements allowed in the cache. If the cache
+	 * holds more elements than the new size, the least recently used ones are
+	 * evicted immediately.
+	 *
+	 * @param size
+	 *            the new maximum number of elements
+	 */
+	public abstract void setCacheSize(int size);
+
+	/**
+	 * Close the cache and release the memory held by its elements. The
+	 * events raised so far are delivered to the listeners, and the writer is
+	 * closed, before returning. A closed cache must not be used any more.
+	 */
+	public void close() {
+		closed = true;
+		clear();
+		NegativeCache absentKeys = negativeCache;
+		if (absentKeys != null) {
+			absentKeys.clear();
+		}
+		eventDispatcher.drain();
+		CacheWriter<V> writer = cacheWriter;
+		if (writer != null) {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Check whether the cache has been closed.
+	 *
+	 * @return true, if closed
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Gets the cache writer.
+	 *
+	 * @return the cache writer, or null
+	 */
+	public CacheWriter<V> getCacheWriter() {
+		return cacheWriter;
+	}
+
+	/**
+	 * Sets the writer called with every insertion and removal before the
+	 * cache is changed. Wrap the writer in a {@link WriteBehindWriter} to
+	 * write behind rather than through. The writer being replaced is closed,
+	 * so that a write behind writer writes the changes it holds back and stops
+	 * its thread.
+	 *
+	 * @param cacheWriter
+	 *            the cache writer, or null to remove it
+	 */
+	public void setCacheWriter(CacheWriter<V> cacheWriter) {
+		CacheWriter<V> previous = this.cacheWriter;
+		this.cacheWriter = cacheWriter;
+		if (previous != null && previous != cacheWriter) {
+			previous.close();
+		}
+	}
+
+	/**
+	 * Turn on negative caching: the keys reported absent from the store with
+	 * {@link #insertAbsent(CacheKey)} are remembered for the given time, so
+	 * that {@link #isKnownAbsent(CacheKey)} answers their next lookups without
+	 * going to the store. The keys are held apart from the elements, and don't
+	 * count towards the size of the cache. The keys remembered so far are
+	 * forgotten.
+	 *
+	 * @param size
+	 *            the maximum number of keys remembered, 0 to turn negative
+	 *            caching off
+	 * @param timeToLive
+	 *            the time(in seconds) a key is known absent for
+	 */
+	public void setNegativeCaching(int size, int timeToLive) {
+		negativeCache = size > 0 ? new NegativeCache(size, TimeUnit.SECONDS.toMillis(timeToLive)) : null;
+	}
+
+	/**
+	 * Remember that the store doesn't hold the given key, if negative caching
+	 * is on. Inserting the key in the cache later forgets it.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	public void insertAbsent(CacheKey cacheKey) {
+		NegativeCache absentKeys = negativeCache;
+		if (absentKeys != null) {
+			absentKeys.put(cacheKey);
+		}
+	}
+
+	/**
+	 * Insert an element read from the underlying store or restored from a
+	 * backup, without writing it back to the store through the cache writer.
+	 *
+	 * @param cacheElement
+	 *            the cache element
+	 */
+	void insertLoaded(CacheElement<V> cacheElement) {
+		insert(cacheElement, false);
+	}
+
+	/**
+	 * Check whether the store is known not to hold the given key, either
+	 * because it has been reported absent recently or because the existence
+	 * filter has never been given the key. Meant to be called when the key
+	 * isn't in the cache, before going to the store.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 * @return true, if the key is known absent from the store
+	 */
+	public boolean isKnownAbsent(CacheKey cacheKey) {
+		BloomFilter filter = existenceFilter;
+		NegativeCache absentKeys = negativeCache;
+		boolean absent = (filter != null && !filter.mightContain(cacheKey))
+				|| (absentKeys != null && absentKeys.contains(cacheKey));
+		if (absent) {
+			stats.recordNegativeHit();
+		}
+		return absent;
+	}
+
+	/**
+	 * Gets the existence filter.
+	 *
+	 * @return the existence filter, or null
+	 */
+	public BloomFilter getExistenceFilter() {
+		return existenceFilter;
+	}
+
+	/**
+	 * Sets the filter of the keys known to exist in the store. The filter
+	 * must have been given every key of the store, and is given every key
+	 * inserted in the cache from now on; a key added to the store by other
+	 * means must be added to the filter too, otherwise it is reported absent.
+	 *
+	 * @param existenceFilter
+	 *            the existence filter, or null to remove it
+	 */
+	public void setExistenceFilter(BloomFilter existenceFilter) {
+		this.existenceFilter = existenceFilter;
+	}
+
+	/**
+	 * Gets the lookup statistics of the cache.
+	 *
+	 * @return the stats
+	 */
+	public CacheStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Start recording the keys accessed in the cache, to replay them later in
+	 * the {@link CacheSimulator}.
+	 *
+	 * @param recorder
+	 *            the trace recorder, which may be shared by several caches
+	 */
+	public void startRecording(TraceRecorder recorder) {
+		this.traceRecorder = recorder;
+	}
+
+	/**
+	 * Stop recording the keys accessed in the cache. The recorder is not
+	 * closed.
+	 *
+	 * @return the trace recorder, or null if the cache wasn't recording
+	 */
+	public TraceRecorder stopRecording() {
+		TraceRecorder recorder = traceRecorder;
+		traceRecorder = null;
+		return recorder;
+	}
+
+	/**
+	 * Adds a listener receiving every insertion, update and removal, in
+	 * batches.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	public void addEventListener(CacheEventListener<V> listener) {
+		eventDispatcher.addEventListener(listener);
+	}
+
+	/**
+	 * Removes an event listener.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	public void removeEventListener(CacheEventListener<V> listener) {
+		eventDispatcher.removeEventListener(listener);
+	}
+
+	/**
+	 * Adds a listener receiving every element removed from the cache, with
+	 * the cause of its removal.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	public void addRemovalListener(RemovalListener<V> listener) {
+		eventDispatcher.addRemovalListener(listener);
+	}
+
+	/**
+	 * Removes a removal listener.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	public void removeRemovalListener(RemovalListener<V> listener) {
+		eventDispatcher.removeRemovalListener(listener);
+	}
+
+	/**
+	 * Sets the executor delivering the events to the listeners, the common
+	 * fork join pool by default.
+	 *
+	 * @param executor
+	 *            the executor
+	 */
+	public void setEventExecutor(Executor executor) {
+		eventDispatcher.setExecutor(executor);
+	}
+
+	/**
+	 * Gets the expiry mode.
+	 *
+	 * @return the expiry mode
+	 */
+	public ExpiryMode getExpiryMode() {
+		return expiryMode;
+	}
+
+	/**
+	 * Sets whether the time to live of the elements is measured since they
+	 * were inserted or since they were last accessed.
+	 *
+	 * @param expiryMode
+	 *            the expiry mode
+	 */
+	public void setExpiryMode(ExpiryMode expiryMode) {
+		this.expiryMode = expiryMode;
+	}
+
+	/**
+	 * Sets the function computing the time to live of every element inserted
+	 * from now on. It takes precedence over the time to live of the element
+	 * and of the cache.
+	 *
+	 * @param expiry
+	 *            the expiry, or null to remove it
+	 */
+	public void setExpiry(Expiry<V> expiry) {
+		this.expiry = expiry;
+	}
+
+	/**
+	 * Gets the value strength.
+	 *
+	 * @return the value strength
+	 */
+	public ValueStrength getValueStrength() {
+		return valueStrength;
+	}
+
+	/**
+	 * Sets how strongly the values of the elements inserted from now on are
+	 * held. With soft or weak values the garbage collector may reclaim a value
+	 * still in the cache, after which its element is treated as expired.
+	 *
+	 * @param valueStrength
+	 *            the value strength
+	 */
+	public void setValueStrength(ValueStrength valueStrength) {
+		this.valueStrength = valueStrength;
+	}
+
+	/**
+	 * Store the string and byte array values of at least the given size
+	 * compressed with the given codec, for the elements inserted from now on.
+	 * A compressed value is decompressed, into a new copy, whenever it is
+	 * read, and it is held strongly whatever the value strength. The
+	 * compression ratio and the time spent are counted in the stats of the
+	 * cache.
+	 *
+	 * @param codec
+	 *            the codec, or null to turn compression off
+	 * @param threshold
+	 *            the size(in bytes) from which values are compressed
+	 */
+	public void setValueCompression(ValueCodec codec, int threshold) {
+		valueCompressor = codec == null ? null : new ValueCompressor(codec, threshold, stats);
+	}
+
+	/**
+	 * Hold the value of an element being inserted compressed if it is large
+	 * enough, else as set by the value strength.
+	 *
+	 * @param cacheElement
+	 *            the cache element
+	 */
+	protected void holdValue(CacheElement<V> cacheElement) {
+		ValueCompressor compressor = valueCompressor;
+		if (compressor == null || !cacheElement.compressValue(compressor)) {
+			cacheElement.holdValue(valueStrength, referenceQueue);
+		}
+	}
+
+	/**
+	 * Return the elements whose value has been reclaimed by the garbage
+	 * collector since the last call, so that the cache can remove them.
+	 *
+	 * @return the collected elements
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<CacheElement<V>> pollCollected() {
+		Reference<? extends V> reference = referenceQueue.poll();
+		if (reference == null) {
+			return Collections.emptyList();
+		}
+		List<CacheElement<V>> collected = new ArrayList<CacheElement<V>>();
+		while (reference != null) {
+			collected.add(((ValueReference<V>) reference).getElement());
+			reference = referenceQueue.poll();
+		}
+		return collected;
+	}
+
+	/**
+	 * Record a lookup in the trace, if recording.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	protected void traceGet(CacheKey cacheKey) {
+		TraceRecorder recorder = traceRecorder;
+		if (recorder != null) {
+			recorder.recordGet(cacheKey);
+		}
+	}
+
+	/**
+	 * Record an insertion in the trace, if recording.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	protected void traceInsert(CacheKey cacheKey) {
+		TraceRecorder recorder = traceRecorder;
+		if (recorder != null) {
+			recorder.recordInsert(cacheKey);
+		}
+	}
+
+	/**
+	 * Record that a key is being inserted, and so exists in the store: the
+	 * key is no longer known absent, and is added to the existence filter.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	protected void recordPresent(CacheKey cacheKey) {
+		NegativeCache absentKeys = negativeCache;
+		if (absentKeys != null) {
+			absentKeys.remove(cacheKey);
+		}
+		BloomFilter filter = existenceFilter;
+		if (filter != null) {
+			filter.put(cacheKey);
+		}
+	}
+
+	/**
+	 * Write an element being inserted to the store, if the cache has a
+	 * writer. Must be called before the element is inserted and without
+	 * holding the lock of the cache, so that a failing writer leaves the
+	 * cache unchanged and a slow one doesn't hold up the other threads.
+	 *
+	 * @param cacheElement
+	 *            the cache element
+	 */
+	protected void writeThrough(CacheElement<V> cacheElement) {
+		CacheWriter<V> writer = cacheWriter;
+		if (writer != null) {
+			writer.write(cacheElement);
+		}
+	}
+
+	/**
+	 * Delete an element being removed from the store, if the cache has a
+	 * writer. Must be called before the element is removed and without
+	 * holding the lock of the cache.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	protected void deleteThrough(CacheKey cacheKey) {
+		CacheWriter<V> writer = cacheWriter;
+		if (writer != null) {
+			writer.delete(cacheKey);
+		}
+	}
+
+	/**
+	 * Record the insertion of an element, to be published once the lock of
+	 * the cache is released. Must be called while holding the lock.
+	 *
+	 * @param cacheElement
+	 *            the inserted element
+	 * @param previous
+	 *            the element it replaced, or null
+	 */
+	protected void recordInsert(CacheElement<V> cacheElement, CacheElement<V> previous) {
+		if (eventDispatcher.hasListeners()) {
+			pendingEvents.add(CacheEvent.inserted(cacheElement, previous));
+		}
+	}
+
+	/**
+	 * Record the removal of an element, to be published once the lock of the
+	 * cache is released. Must be called while holding the lock.
+	 *
+	 * @param cacheElement
+	 *            the removed element
+	 * @param cause
+	 *            the cause of the removal
+	 */
+	protected void recordRemoval(CacheElement<V> cacheElement, RemovalCause cause) {
+		if (eventDispatcher.hasListeners()) {
+			pendingEvents.add(CacheEvent.removed(cacheElement, cause));
+		}
+	}
+
+	/**
+	 * Enqueue the recorded events, in the order they were recorded. Must be
+	 * called while still holding the lock, right before releasing it.
+	 *
+	 * @return the events which didn't fit in the queue, to be passed to
+	 *         {@link #dispatchEvents(List)}, or null if there were no events
+	 */
+	protected List<CacheEvent<V>> enqueueEvents() {
+		if (pendingEvents.isEmpty()) {
+			return null;
+		}
+		List<CacheEvent<V>> events = pendingEvents;
+		pendingEvents = new ArrayList<CacheEvent<V>>();
+		return eventDispatcher.enqueue(events);
+	}
+
+	/**
+	 * Schedule the delivery of the enqueued events. Must be called after
+	 * releasing the lock.
+	 *
+	 * @param overflow
+	 *            the events returned by {@link #enqueueEvents()}
+	 */
+	protected void dispatchEvents(List<CacheEvent<V>> overflow) {
+		if (overflow != null) {
+			eventDispatcher.dispatch(overflow);
+		}
+	}
+
+	/**
+	 * Set the expiration time of an element being inserted. The time to live
+	 * is taken from the expiry function if set, else from the element if it
+	 * was created with one, else from the cache.
+	 *
+	 * @param cacheElement
+	 *            the cache element
+	 */
+	protected void applyExpiry(CacheElement<V> cacheElement) {
+		Expiry<V> currentExpiry = expiry;
+		if (currentExpiry != null) {
+			long ttl = currentExpiry.timeToLive(cacheElement.getId(), cacheElement.getValue());
+			cacheElement.setExpiration(ttl, TimeUnit.MILLISECONDS);
+		} else if (cacheElement.getTimeToLive() > 0) {
+			cacheElement.setExpiration(cacheElement.getTimeToLive());
+		} else {
+			cacheElement.setExpiration(timeToLive);
+		}
+	}
+
+	/**
+	 * Apply an access to the expiration time of an element.
+	 *
+	 * @param cacheElement
+	 *            the cache element
+	 */
+	protected void recordAccess(CacheElement<V> cacheElement) {
+		if (expiryMode == ExpiryMode.AFTER_ACCESS) {
+			cacheElement.refreshExpiration();
+		}
+	}
+
 	/**
 	 * Return the name of the cache.
 	 *
@@ -73,4 +688,160 @@ public abstract class Cache<V> {
 	public List<CacheElement<V>> getValues() {
 		return cacheMap.entrySet().stream().map(e -> e.getValue()).collect(Collectors.toList());
 	}
+
+	/**
+	 * Return a weakly consistent iterator over the elements of the cache, as
+	 * described in {@link #spliterator()}. The iterator doesn't support
+	 * removal.
+	 *
+	 * @see java.lang.Iterable#iterator()
+	 */
+	@Override
+	public Iterator<CacheElement<V>> iterator() {
+		return Spliterators.iterator(spliterator());
+	}
+
+	/**
+	 * Return a weakly consistent spliterator over the elements of the cache.
+	 * The traversal neither locks the whole cache nor copies it, and it never
+	 * throws ConcurrentModificationException. Reading an element this way is
+	 * not an access: the eviction order and the expiration time of the
+	 * element are left unchanged. Every element present when the traversal
+	 * starts and not removed or replaced before it is reached is returned
+	 * exactly once. The elements inserted since may or may not be returned.
+	 * Expired elements are skipped.
+	 * <p>
+	 * This implementation traverses the concurrent map holding the elements.
+	 * A cache whose map isn't concurrent must override it.
+	 *
+	 * @see java.lang.Iterable#spliterator()
+	 */
+	@Override
+	public Spliterator<CacheElement<V>> spliterator() {
+		return new UnexpiredSpliterator<V>(cacheMap.values().spliterator());
+	}
+
+	/**
+	 * Return a sequential stream over the elements of the cache, with the
+	 * guarantees of {@link #spliterator()}.
+	 *
+	 * @return the stream
+	 */
+	public Stream<CacheElement<V>> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Return a parallel stream over the elements of the cache, with the
+	 * guarantees of {@link #spliterator()}, for analyzing a large cache.
+	 *
+	 * @return the stream
+	 */
+	public Stream<CacheElement<V>> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	/**
+	 * The Class UnexpiredSpliterator skips the expired elements of the
+	 * spliterator it wraps.
+	 *
+	 * @param <V>
+	 *            the value type of CacheElement
+	 */
+	private static final class UnexpiredSpliterator<V> implements Spliterator<CacheElement<V>> {
+
+		/** The wrapped spliterator. */
+		private final Spliterator<CacheElement<V>> elements;
+
+		/** The next unexpired element, set by the filter. */
+		private CacheElement<V> next;
+
+		/**
+		 * Instantiates a new unexpired spliterator.
+		 *
+		 * @param elements
+		 *            the wrapped spliterator
+		 */
+		UnexpiredSpliterator(Spliterator<CacheElement<V>> elements) {
+			this.elements = elements;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+		 */
+		@Override
+		public boolean tryAdvance(Consumer<? super CacheElement<V>> action) {
+			next = null;
+			while (next == null && elements.tryAdvance(this::accept)) {
+				/*
+				 * Skip the expired elements
+				 */
+			}
+			if (next == null) {
+				return false;
+			}
+			action.accept(next);
+			return true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see
+		 * java.util.Spliterator#forEachRemaining(java.util.function.Consumer)
+		 */
+		@Override
+		public void forEachRemaining(Consumer<? super CacheElement<V>> action) {
+			elements.forEachRemaining(cacheElement -> {
+				if (!cacheElement.isExpired()) {
+					action.accept(cacheElement);
+				}
+			});
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Spliterator#trySplit()
+		 */
+		@Override
+		public Spliterator<CacheElement<V>> trySplit() {
+			Spliterator<CacheElement<V>> prefix = elements.trySplit();
+			return prefix == null ? null : new UnexpiredSpliterator<V>(prefix);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Spliterator#estimateSize()
+		 */
+		@Override
+		public long estimateSize() {
+			return elements.estimateSize();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Spliterator#characteristics()
+		 */
+		@Override
+		public int characteristics() {
+			return elements.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+		}
+
+		/**
+		 * Keep the element if it hasn't expired.
+		 *
+		 * @param cacheElement
+		 *            the cache element
+		 */
+		private void accept(CacheElement<V> cacheElement) {
+			if (!cacheElement.isExpired()) {
+				next = cacheElement;
+			}
+		}
+	}
 }
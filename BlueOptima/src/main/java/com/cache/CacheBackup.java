@@ -6,10 +6,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.nio.file.Path;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The Class CacheBackup is used to backup the cache values on the file system
@@ -34,7 +35,7 @@ public class CacheBackup extends Thread {
 	 */
 	private CacheBackup(Path path) {
 		backupPath = path;
-		cacheSet = new HashSet<Cache<?>>();
+		cacheSet = Collections.newSetFromMap(new ConcurrentHashMap<Cache<?>, Boolean>());
 	}
 
 	/**
@@ -67,6 +68,16 @@ public class CacheBackup extends Thread {
 		cacheSet.add(cache);
 	}
 
+	/**
+	 * Removes the cache.
+	 *
+	 * @param cache
+	 *            the cache
+	 */
+	protected void removeCache(Cache<?> cache) {
+		cacheSet.remove(cache);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -88,7 +99,7 @@ public class CacheBackup extends Thread {
 	 * @param cache
 	 *            the cache
 	 */
-	private <T> void backupCache(Cache<T> cache) {
+	protected <T> void backupCache(Cache<T> cache) {
 		File backupFile = backupPath.resolve(cache.getName() + ".ser").toFile();
 		FileOutputStream fw;
 		ObjectOutputStream ostream;
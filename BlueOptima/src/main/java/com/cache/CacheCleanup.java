@@ -12,7 +12,7 @@ public class CacheCleanup extends Thread {
 	private Cache<?> cache;
 
 	/** The cleanup interval. */
-	private int cleanupInterval;
+	private volatile int cleanupInterval;
 
 	/**
 	 * Instantiates a new cache cleanup.
@@ -36,16 +36,35 @@ public class CacheCleanup extends Thread {
 	 */
 	@Override
 	public void run() {
-		while (true) {
+		while (!isInterrupted()) {
 			cache.removeAllExpired();
 			try {
 				sleep(cleanupInterval * 60 * 1000);
 			} catch (InterruptedException e) {
-				System.err
-						.println("Exception occurred while cleaning up the cache::" + cache.getName() + e.getMessage());
-				e.printStackTrace();
+				/*
+				 * Interrupted by shutdown(), stop cleaning up
+				 */
+				break;
 			}
 		}
 	}
 
+	/**
+	 * Change the time interval between two cleanups, from the next cleanup
+	 * on.
+	 *
+	 * @param interval
+	 *            The time interval(in minutes) at which this thread runs
+	 */
+	protected void setCleanupInterval(int interval) {
+		this.cleanupInterval = interval;
+	}
+
+	/**
+	 * Stop the cleanup thread.
+	 */
+	protected void shutdown() {
+		interrupt();
+	}
+
 }
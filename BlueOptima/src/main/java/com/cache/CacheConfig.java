@@ -0,0 +1,359 @@
+package com.cache;
+
+import java.util.Properties;
+
+/**
+ * The Class CacheConfig holds the settings of one cache, read from the cache
+ * configuration file. Every setting is read from the property prefixed with
+ * the name of the cache, such as <code>cache.users.maxSize</code>, if present,
+ * and from the global property, such as <code>maxSize</code>, otherwise, so
+ * that one file tunes every cache while keeping a common default.
+ * <p>
+ * A configuration is a snapshot: the configuration file may be reloaded while
+ * running, producing new configurations which are then applied to the live
+ * caches.
+ */
+public final class CacheConfig {
+
+	/** The prefix of the properties of a single cache. */
+	public static final String CACHE_PREFIX = "cache.";
+
+	/** The Constant CACHE_SIZE. */
+	static final String CACHE_SIZE = "maxSize";
+
+	/** The Constant TIME_TO_LIVE. */
+	static final String TIME_TO_LIVE = "timeToLive";
+
+	/** The Constant BACKUP. */
+	static final String BACKUP = "backup";
+
+	/** The Constant CLEANUP_INTERVAL. */
+	static final String CLEANUP_INTERVAL = "CleanupInterval";
+
+	/** The Constant EXPIRY_MODE. */
+	static final String EXPIRY_MODE = "expiryMode";
+
+	/** The Constant VALUE_STRENGTH. */
+	static final String VALUE_STRENGTH = "valueStrength";
+
+	/** The Constant ENGINE. */
+	static final String ENGINE = "engine";
+
+	/** The Constant SHARDS. */
+	static final String SHARDS = "shards";
+
+	/** The Constant MIN_SIZE. */
+	static final String MIN_SIZE = "minSize";
+
+	/** The Constant WEIGHT. */
+	static final String WEIGHT = "weight";
+
+	/** The Constant NEGATIVE_CACHE_SIZE. */
+	static final String NEGATIVE_CACHE_SIZE = "negativeCacheSize";
+
+	/** The Constant NEGATIVE_TIME_TO_LIVE. */
+	static final String NEGATIVE_TIME_TO_LIVE = "negativeTimeToLive";
+
+	/** The Constant COMPRESSION_THRESHOLD. */
+	static final String COMPRESSION_THRESHOLD = "compressionThreshold";
+
+	/** The Constant COMPRESSION_CODEC. */
+	static final String COMPRESSION_CODEC = "compressionCodec";
+
+	/** The cache name, null for the global configuration. */
+	private final String cacheName;
+
+	/** The maximum number of elements. */
+	private final int maxSize;
+
+	/** The minimum number of elements of an adaptively sized cache. */
+	private final int minSize;
+
+	/** The time to live(in minutes). */
+	private final int timeToLive;
+
+	/** The time interval(in minutes) between two cleanups. */
+	private final int cleanupInterval;
+
+	/** The point in time from which the time to live is measured. */
+	private final ExpiryMode expiryMode;
+
+	/** How strongly the values are held. */
+	private final ValueStrength valueStrength;
+
+	/** The cache engine, either lru or concurrent. */
+	private final String engine;
+
+	/** The number of shards. */
+	private final int shards;
+
+	/** The flag to indicate whether the cache is backed up. */
+	private final boolean backup;
+
+	/** The relative weight of the cache in the shared memory budget. */
+	private final double weight;
+
+	/** The maximum number of keys known absent from the store. */
+	private final int negativeCacheSize;
+
+	/** The time(in seconds) a key is known absent for. */
+	private final int negativeTimeToLive;
+
+	/** The size(in bytes) from which values are compressed, 0 for never. */
+	private final int compressionThreshold;
+
+	/** The class of the codec compressing the values. */
+	private final Class<? extends ValueCodec> compressionCodec;
+
+	/**
+	 * Instantiates a new cache configuration.
+	 *
+	 * @param properties
+	 *            the properties of the configuration file
+	 * @param cacheName
+	 *            the cache name, or null for the global configuration
+	 */
+	private CacheConfig(Properties properties, String cacheName) {
+		this.cacheName = cacheName;
+		maxSize = Integer.parseInt(get(properties, CACHE_SIZE, null));
+		/*
+		 * A global minimum larger than the maximum of a cache is capped by it
+		 */
+		minSize = Math.min(maxSize,
+				Integer.parseInt(get(properties, MIN_SIZE, String.valueOf(Math.max(1, maxSize / 10)))));
+		timeToLive = Integer.parseInt(get(properties, TIME_TO_LIVE, null));
+		cleanupInterval = Integer.parseInt(get(properties, CLEANUP_INTERVAL, null));
+		expiryMode = ExpiryMode.valueOf(get(properties, EXPIRY_MODE, "AFTER_ACCESS"));
+		valueStrength = ValueStrength.valueOf(get(properties, VALUE_STRENGTH, "STRONG"));
+		engine = get(properties, ENGINE, "lru");
+		shards = Integer.parseInt(get(properties, SHARDS, "1"));
+		backup = Boolean.parseBoolean(get(properties, BACKUP, "false"));
+		weight = Double.parseDouble(get(properties, WEIGHT, "1.0"));
+		negativeCacheSize = Integer.parseInt(get(properties, NEGATIVE_CACHE_SIZE, "0"));
+		negativeTimeToLive = Integer.parseInt(get(properties, NEGATIVE_TIME_TO_LIVE, "60"));
+		compressionThreshold = Integer.parseInt(get(properties, COMPRESSION_THRESHOLD, "0"));
+		compressionCodec = loadCodec(get(properties, COMPRESSION_CODEC, DeflateCodec.class.getName()));
+		if (maxSize <= 0 || minSize <= 0 || shards <= 0 || weight <= 0 || negativeCacheSize < 0 || negativeTimeToLive <= 0
+				|| compressionThreshold < 0) {
+			throw new IllegalArgumentException("Invalid configuration of cache " + cacheName);
+		}
+	}
+
+	/**
+	 * Load a codec class.
+	 *
+	 * @param className
+	 *            the class name
+	 * @return the codec class
+	 */
+	private static Class<? extends ValueCodec> loadCodec(String className) {
+		try {
+			return Class.forName(className).asSubclass(ValueCodec.class);
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IllegalArgumentException("Invalid compression codec " + className, e);
+		}
+	}
+
+	/**
+	 * Read the global configuration, shared by all the caches.
+	 *
+	 * @param properties
+	 *            the properties of the configuration file
+	 * @return the configuration
+	 */
+	public static CacheConfig global(Properties properties) {
+		return new CacheConfig(properties, null);
+	}
+
+	/**
+	 * Read the configuration of a cache.
+	 *
+	 * @param properties
+	 *            the properties of the configuration file
+	 * @param cacheName
+	 *            the cache name
+	 * @return the configuration
+	 */
+	public static CacheConfig forCache(Properties properties, String cacheName) {
+		return new CacheConfig(properties, cacheName);
+	}
+
+	/**
+	 * Read a property of the cache, falling back to the global property and
+	 * then to the default value.
+	 *
+	 * @param properties
+	 *            the properties
+	 * @param name
+	 *            the property name
+	 * @param defaultValue
+	 *            the default value, or null if the property is mandatory
+	 * @return the trimmed property value
+	 */
+	private String get(Properties properties, String name, String defaultValue) {
+		String value = null;
+		if (cacheName != null) {
+			value = properties.getProperty(CACHE_PREFIX + cacheName + "." + name);
+		}
+		if (value == null) {
+			value = properties.getProperty(name, defaultValue);
+		}
+		if (value == null) {
+			throw new IllegalArgumentException("Missing cache property " + name);
+		}
+		return value.trim();
+	}
+
+	/**
+	 * Gets the cache name.
+	 *
+	 * @return the cache name, or null for the global configuration
+	 */
+	public String getCacheName() {
+		return cacheName;
+	}
+
+	/**
+	 * Gets the maximum number of elements.
+	 *
+	 * @return the max size
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Gets the time to live.
+	 *
+	 * @return the time to live(in minutes)
+	 */
+	public int getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * Gets the time interval between two cleanups.
+	 *
+	 * @return the cleanup interval(in minutes)
+	 */
+	public int getCleanupInterval() {
+		return cleanupInterval;
+	}
+
+	/**
+	 * Gets the expiry mode.
+	 *
+	 * @return the expiry mode
+	 */
+	public ExpiryMode getExpiryMode() {
+		return expiryMode;
+	}
+
+	/**
+	 * Gets the value strength.
+	 *
+	 * @return the value strength
+	 */
+	public ValueStrength getValueStrength() {
+		return valueStrength;
+	}
+
+	/**
+	 * Gets the cache engine.
+	 *
+	 * @return the engine, either lru or concurrent
+	 */
+	public String getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Gets the number of shards, which sets how many threads can change the
+	 * cache at the same time.
+	 *
+	 * @return the shards
+	 */
+	public int getShards() {
+		return shards;
+	}
+
+	/**
+	 * Check whether the cache is backed up.
+	 *
+	 * @return true, if backed up
+	 */
+	public boolean isBackupEnabled() {
+		return backup;
+	}
+
+	/**
+	 * Gets the minimum number of elements of the cache when adaptively sized.
+	 *
+	 * @return the min size, a tenth of the max size by default
+	 */
+	public int getMinSize() {
+		return minSize;
+	}
+
+	/**
+	 * Gets the relative weight of the cache in the memory budget shared by
+	 * the adaptively sized caches.
+	 *
+	 * @return the weight, 1.0 by default
+	 */
+	public double getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Gets the maximum number of keys remembered as absent from the store.
+	 *
+	 * @return the negative cache size, 0 if negative caching is off
+	 */
+	public int getNegativeCacheSize() {
+		return negativeCacheSize;
+	}
+
+	/**
+	 * Gets the time a key is remembered as absent from the store.
+	 *
+	 * @return the negative time to live(in seconds)
+	 */
+	public int getNegativeTimeToLive() {
+		return negativeTimeToLive;
+	}
+
+	/**
+	 * Gets the size from which values are stored compressed.
+	 *
+	 * @return the compression threshold(in bytes), 0 if compression is off
+	 */
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	/**
+	 * Gets the class of the codec compressing the values.
+	 *
+	 * @return the compression codec class
+	 */
+	public Class<? extends ValueCodec> getCompressionCodec() {
+		return compressionCodec;
+	}
+
+	/**
+	 * Create the codec compressing the values, if compression is on.
+	 *
+	 * @return a new codec, or null if compression is off
+	 */
+	public ValueCodec newCompressionCodec() {
+		if (compressionThreshold == 0) {
+			return null;
+		}
+		try {
+			return compressionCodec.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Cannot create compression codec " + compressionCodec.getName(), e);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.cache;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Class CacheConfigWatcher watches the cache configuration file and hands
+ * every new version of it to its listener, so that the caches can be tuned
+ * without a restart. An instance of this class runs as a daemon thread waiting
+ * on a {@link WatchService} for the changes of the directory of the file.
+ * <p>
+ * An editor may save a file in several writes, so the file is only read once
+ * it has stopped changing for a short while. A version which cannot be read is
+ * reported and ignored, and the caches keep the previous one.
+ */
+public class CacheConfigWatcher extends Thread {
+
+	/** The time(in milliseconds) the file must stay unchanged to be read. */
+	private static final long SETTLE_TIME = 200;
+
+	/** The configuration file. */
+	private final Path configFile;
+
+	/** The listener. */
+	private final Listener listener;
+
+	/** The watch service. */
+	private final WatchService watchService;
+
+	/**
+	 * Instantiates a new cache config watcher.
+	 *
+	 * @param configFile
+	 *            the configuration file
+	 * @param listener
+	 *            the listener
+	 * @throws IOException
+	 *             if the directory of the file cannot be watched
+	 */
+	public CacheConfigWatcher(Path configFile, Listener listener) throws IOException {
+		this.configFile = configFile.toAbsolutePath();
+		this.listener = listener;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.configFile.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		setDaemon(true);
+		setName("Cache Config Watcher");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			while (!isInterrupted()) {
+				WatchKey key = watchService.take();
+				boolean changed = concernsConfigFile(key);
+				/*
+				 * Wait for the writes of the same save to end
+				 */
+				while ((key = watchService.poll(SETTLE_TIME, TimeUnit.MILLISECONDS)) != null) {
+					changed |= concernsConfigFile(key);
+				}
+				if (changed) {
+					reload();
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			/*
+			 * Interrupted or closed by shutdown(), stop watching
+			 */
+		}
+	}
+
+	/**
+	 * Stop watching the configuration file.
+	 */
+	public void shutdown() {
+		interrupt();
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			System.err.println("I/O exception while closing the watch service" + e.getMessage());
+		}
+	}
+
+	/**
+	 * Check whether the events of a watch key include a change of the
+	 * configuration file, and reset the key.
+	 *
+	 * @param key
+	 *            the watch key
+	 * @return true, if the configuration file changed
+	 */
+	private boolean concernsConfigFile(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			Object context = event.context();
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW
+					|| (context instanceof Path && configFile.getFileName().equals(context))) {
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 * Read the configuration file and hand it to the listener.
+	 */
+	private void reload() {
+		Properties properties = new Properties();
+		try (InputStream in = new FileInputStream(configFile.toFile())) {
+			properties.load(in);
+			listener.onConfigChange(properties);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Ignoring the invalid cache configuration file " + configFile + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * The listener interface for receiving the new versions of the
+	 * configuration file.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called with every new version of the configuration file.
+		 *
+		 * @param properties
+		 *            the properties of the file
+		 * @throws IllegalArgumentException
+		 *             if the configuration is invalid, in which case it is
+		 *             ignored
+		 */
+		public void onConfigChange(Properties properties);
+	}
+}
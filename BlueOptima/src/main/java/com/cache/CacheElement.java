@@ -1,8 +1,10 @@
 package com.cache;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.Calendar;
-import java.util.Date;
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * CacheElement is the class which represents the elements which can be stored
@@ -14,7 +16,7 @@ import java.util.Date;
 public class CacheElement<V> implements Cacheable, Serializable {
 
 	/** The Constant serialVersionUID. */
-	private static final long serialVersionUID = 6015331521879386327L;
+	private static final long serialVersionUID = -2385093311357400716L;
 
 	/** The id of the cache element */
 	private CacheKey id;
@@ -22,17 +24,38 @@ public class CacheElement<V> implements Cacheable, Serializable {
 	/** The maximum time(in minutes) it resides in the cache. */
 	private int timeToLive;
 
-	/** The expiration time. */
-	private Date expirationTime;
+	/** The expiration time(in milliseconds since the epoch). */
+	private volatile long expirationTime;
+
+	/**
+	 * The time(in milliseconds) the element lives after the expiration time is
+	 * set, which the cache may apply again on every access.
+	 */
+	private volatile long expiryDuration;
 
 	/**
 	 * The flag which specifies whether this element lives indefinitely. in the
 	 * cache or not.
 	 */
-	private boolean livesIndefinitely;
+	private volatile boolean livesIndefinitely;
+
+	/**
+	 * The value of the element, null while it is held by a reference or
+	 * compressed.
+	 */
+	private volatile V value;
+
+	/** The soft or weak reference holding the value, if any. */
+	private transient volatile ValueReference<V> valueReference;
+
+	/** The compressed value, if the value is stored compressed. */
+	private transient byte[] compressedValue;
 
-	/** The value of the element */
-	private V value;
+	/** The compressor which compressed the value, if any. */
+	private transient ValueCompressor compressor;
+
+	/** The flag to indicate whether the compressed value is a string. */
+	private transient boolean compressedString;
 
 	/**
 	 * Instantiates a new cache element.
@@ -56,7 +79,6 @@ public class CacheElement<V> implements Cacheable, Serializable {
 			this.livesIndefinitely = false;
 		} else {
 			this.livesIndefinitely = true;
-			expirationTime = null;
 		}
 	}
 
@@ -89,25 +111,37 @@ public class CacheElement<V> implements Cacheable, Serializable {
 	 */
 	@Override
 	public boolean isExpired() {
-		boolean isExpired = false;
-		if (!livesIndefinitely) {
-			Date currentTime = new Date();
-			if (expirationTime.before(currentTime)) {
-				isExpired = true;
-			}
-		}
-		return isExpired;
+		return isExpired(System.currentTimeMillis());
+	}
+
+	/**
+	 * Check whether the element has expired at the given time.
+	 *
+	 * @param now
+	 *            the current time(in milliseconds since the epoch)
+	 * @return true, if it is expired.
+	 */
+	public boolean isExpired(long now) {
+		return (!livesIndefinitely && expirationTime < now) || isCollected();
+	}
+
+	/**
+	 * Check whether the value, held by a soft or weak reference, has been
+	 * reclaimed by the garbage collector. Such an element is considered
+	 * expired.
+	 *
+	 * @return true, if the value has been reclaimed
+	 */
+	public boolean isCollected() {
+		ValueReference<V> reference = valueReference;
+		return reference != null && value == null && reference.get() == null;
 	}
 
 	/**
 	 * Sets the expiration time based on the time to live value.
 	 */
 	public void setExpiration() {
-		expirationTime = new Date();
-		Calendar calendar = Calendar.getInstance();
-		calendar.setTime(expirationTime);
-		calendar.add(Calendar.MINUTE, timeToLive);
-		expirationTime = calendar.getTime();
+		setExpiration(timeToLive);
 	}
 
 	/**
@@ -117,24 +151,155 @@ public class CacheElement<V> implements Cacheable, Serializable {
 	 *            time to live(in minutes)
 	 */
 	public void setExpiration(int ttl) {
+		setExpiration(ttl, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Sets the expiration time based on the given time to live value. A time
+	 * to live of 0 or less makes the element live indefinitely.
+	 *
+	 * @param ttl
+	 *            time to live
+	 * @param unit
+	 *            the unit of the time to live
+	 */
+	public void setExpiration(long ttl, TimeUnit unit) {
 		if (ttl <= 0) {
+			expiryDuration = 0;
 			livesIndefinitely = true;
 			return;
 		}
-		expirationTime = new Date();
-		Calendar calendar = Calendar.getInstance();
-		calendar.setTime(expirationTime);
-		calendar.add(Calendar.MINUTE, ttl);
-		expirationTime = calendar.getTime();
+		expiryDuration = unit.toMillis(ttl);
+		expirationTime = System.currentTimeMillis() + expiryDuration;
+		livesIndefinitely = false;
+	}
+
+	/**
+	 * Push the expiration time back by the duration of the last
+	 * {@link #setExpiration(long, TimeUnit)}, as done on every access by a
+	 * cache expiring its elements after access.
+	 */
+	public void refreshExpiration() {
+		if (!livesIndefinitely) {
+			expirationTime = System.currentTimeMillis() + expiryDuration;
+		}
+	}
+
+	/**
+	 * Gets the expiration time.
+	 *
+	 * @return the expiration time(in milliseconds since the epoch), or
+	 *         Long.MAX_VALUE if the element lives indefinitely
+	 */
+	public long getExpirationTime() {
+		return livesIndefinitely ? Long.MAX_VALUE : expirationTime;
+	}
+
+	/**
+	 * Gets the time to live.
+	 *
+	 * @return the time to live(in minutes) the element was created with
+	 */
+	public int getTimeToLive() {
+		return timeToLive;
 	}
 
 	/**
-	 * Gets the value.
+	 * Gets the value. A value stored compressed is decompressed on every
+	 * call, and every call returns a new copy of it.
 	 *
 	 * @return the value of cache element
 	 */
+	@SuppressWarnings("unchecked")
 	public V getValue() {
-		return value;
+		V current = value;
+		if (current == null) {
+			ValueReference<V> reference = valueReference;
+			if (reference != null) {
+				current = reference.get();
+			} else if (compressedValue != null) {
+				current = (V) compressor.decompress(compressedValue, compressedString);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Check whether the value is stored compressed.
+	 *
+	 * @return true, if compressed
+	 */
+	public boolean isCompressed() {
+		return value == null && compressedValue != null;
+	}
+
+	/**
+	 * Store the value compressed, if the compressor accepts it. A compressed
+	 * value is held strongly, as nothing else holds the compressed bytes.
+	 *
+	 * @param valueCompressor
+	 *            the compressor of the cache
+	 * @return true, if the value is now stored compressed
+	 */
+	boolean compressValue(ValueCompressor valueCompressor) {
+		V current = value;
+		if (current == null) {
+			return false;
+		}
+		byte[] compressed = valueCompressor.compress(current);
+		if (compressed == null) {
+			return false;
+		}
+		compressedValue = compressed;
+		compressedString = current instanceof String;
+		compressor = valueCompressor;
+		/*
+		 * Written last, so that a thread reading the value sees the compressed
+		 * value once it sees the value gone
+		 */
+		value = null;
+		return true;
+	}
+
+	/**
+	 * Hold the value through a soft or weak reference, which is enqueued in
+	 * the given queue once the garbage collector reclaims the value.
+	 *
+	 * @param strength
+	 *            the value strength
+	 * @param queue
+	 *            the reference queue of the cache
+	 */
+	void holdValue(ValueStrength strength, ReferenceQueue<? super V> queue) {
+		V current = value;
+		if (strength == ValueStrength.STRONG || current == null) {
+			return;
+		}
+		if (strength == ValueStrength.SOFT) {
+			valueReference = new ValueReference.Soft<V>(this, current, queue);
+		} else {
+			valueReference = new ValueReference.Weak<V>(this, current, queue);
+		}
+		value = null;
+	}
+
+	/**
+	 * Write the value itself rather than the reference holding it.
+	 *
+	 * @param out
+	 *            the output stream
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("id", id);
+		fields.put("timeToLive", timeToLive);
+		fields.put("expirationTime", expirationTime);
+		fields.put("expiryDuration", expiryDuration);
+		fields.put("livesIndefinitely", livesIndefinitely);
+		fields.put("value", getValue());
+		out.writeFields();
 	}
 
 	/*
@@ -144,7 +309,7 @@ public class CacheElement<V> implements Cacheable, Serializable {
 	 */
 	@Override
 	public String toString() {
-		return value.toString();
+		return String.valueOf(getValue());
 	}
 
 }
@@ -0,0 +1,145 @@
+package com.cache;
+
+/**
+ * The Class CacheEvent describes a change made to a cache: an element has been
+ * inserted, has replaced another element with the same key, or has been
+ * removed.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+public final class CacheEvent<V> {
+
+	/**
+	 * The Enum Type.
+	 */
+	public enum Type {
+
+		/** An element has been inserted with a new key. */
+		INSERTED,
+
+		/** An element has replaced the element with the same key. */
+		UPDATED,
+
+		/** An element has been removed. */
+		REMOVED
+	}
+
+	/** The type. */
+	private final Type type;
+
+	/** The element inserted, or removed. */
+	private final CacheElement<V> cacheElement;
+
+	/** The element replaced by an update. */
+	private final CacheElement<V> oldElement;
+
+	/** The cause of the removal. */
+	private final RemovalCause cause;
+
+	/**
+	 * Instantiates a new cache event.
+	 *
+	 * @param type
+	 *            the type
+	 * @param cacheElement
+	 *            the element inserted, or removed
+	 * @param oldElement
+	 *            the element replaced by an update
+	 * @param cause
+	 *            the cause of the removal
+	 */
+	private CacheEvent(Type type, CacheElement<V> cacheElement, CacheElement<V> oldElement, RemovalCause cause) {
+		this.type = type;
+		this.cacheElement = cacheElement;
+		this.oldElement = oldElement;
+		this.cause = cause;
+	}
+
+	/**
+	 * Create the event of an insertion, which is an update if an element with
+	 * the same key has been replaced.
+	 *
+	 * @param cacheElement
+	 *            the inserted element
+	 * @param oldElement
+	 *            the replaced element, or null
+	 * @return the event
+	 */
+	static <V> CacheEvent<V> inserted(CacheElement<V> cacheElement, CacheElement<V> oldElement) {
+		if (oldElement == null) {
+			return new CacheEvent<V>(Type.INSERTED, cacheElement, null, null);
+		}
+		return new CacheEvent<V>(Type.UPDATED, cacheElement, oldElement, RemovalCause.REPLACED);
+	}
+
+	/**
+	 * Create the event of a removal.
+	 *
+	 * @param cacheElement
+	 *            the removed element
+	 * @param cause
+	 *            the cause of the removal
+	 * @return the event
+	 */
+	static <V> CacheEvent<V> removed(CacheElement<V> cacheElement, RemovalCause cause) {
+		return new CacheEvent<V>(Type.REMOVED, cacheElement, null, cause);
+	}
+
+	/**
+	 * Gets the type.
+	 *
+	 * @return the type
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the key of the element.
+	 *
+	 * @return the key
+	 */
+	public CacheKey getKey() {
+		return cacheElement.getId();
+	}
+
+	/**
+	 * Gets the element inserted by an insertion or an update, or the element
+	 * removed by a removal.
+	 *
+	 * @return the cache element
+	 */
+	public CacheElement<V> getElement() {
+		return cacheElement;
+	}
+
+	/**
+	 * Gets the element replaced by an update.
+	 *
+	 * @return the old element, null unless the event is an update
+	 */
+	public CacheElement<V> getOldElement() {
+		return oldElement;
+	}
+
+	/**
+	 * Gets the cause of the removal of the element. An update removes the
+	 * old element with the cause {@link RemovalCause#REPLACED}.
+	 *
+	 * @return the cause, null for an insertion
+	 */
+	public RemovalCause getCause() {
+		return cause;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return type + (cause != null && type == Type.REMOVED ? "(" + cause + ")" : "") + " " + getKey().getKey();
+	}
+}
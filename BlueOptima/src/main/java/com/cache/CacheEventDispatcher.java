@@ -0,0 +1,238 @@
+package com.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The Class CacheEventDispatcher delivers the events of a cache to its
+ * listeners without holding up the threads using the cache.
+ * <p>
+ * The cache enqueues its events in a bounded queue while it still holds its
+ * lock, so that the queue keeps the order in which the changes were made, and
+ * schedules a delivery task on the executor once the lock is released. The
+ * task delivers the queued events in batches until the queue is empty, and at
+ * most one such task runs at a time, so the listeners are never called
+ * concurrently. When the listeners fall so far behind that the queue is full,
+ * the thread raising new events delivers a batch itself before enqueueing
+ * them, which slows the cache down rather than losing events. The events
+ * raised while the queue is full may then be delivered out of order with the
+ * events raised at the same time by other threads.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+class CacheEventDispatcher<V> implements Runnable {
+
+	/** The Constant QUEUE_CAPACITY. */
+	private static final int QUEUE_CAPACITY = 1024;
+
+	/** The Constant MAX_BATCH_SIZE. */
+	private static final int MAX_BATCH_SIZE = 128;
+
+	/** The events not delivered yet. */
+	private final BlockingQueue<CacheEvent<V>> queue = new ArrayBlockingQueue<CacheEvent<V>>(QUEUE_CAPACITY);
+
+	/** The event listeners. */
+	private final List<CacheEventListener<V>> eventListeners = new CopyOnWriteArrayList<CacheEventListener<V>>();
+
+	/** The removal listeners. */
+	private final List<RemovalListener<V>> removalListeners = new CopyOnWriteArrayList<RemovalListener<V>>();
+
+	/** The flag to indicate whether a delivery task is scheduled or running. */
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	/** The lock letting one thread at a time deliver a batch. */
+	private final ReentrantLock deliveryLock = new ReentrantLock();
+
+	/** The executor running the delivery task. */
+	private volatile Executor executor = ForkJoinPool.commonPool();
+
+	/**
+	 * Check whether there is any listener, so that the cache doesn't create
+	 * events no one listens to.
+	 *
+	 * @return true, if any listener
+	 */
+	boolean hasListeners() {
+		return !eventListeners.isEmpty() || !removalListeners.isEmpty();
+	}
+
+	/**
+	 * Adds the event listener.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	void addEventListener(CacheEventListener<V> listener) {
+		eventListeners.add(listener);
+	}
+
+	/**
+	 * Removes the event listener.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	void removeEventListener(CacheEventListener<V> listener) {
+		eventListeners.remove(listener);
+	}
+
+	/**
+	 * Adds the removal listener.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	void addRemovalListener(RemovalListener<V> listener) {
+		removalListeners.add(listener);
+	}
+
+	/**
+	 * Removes the removal listener.
+	 *
+	 * @param listener
+	 *            the listener
+	 */
+	void removeRemovalListener(RemovalListener<V> listener) {
+		removalListeners.remove(listener);
+	}
+
+	/**
+	 * Sets the executor running the delivery task.
+	 *
+	 * @param executor
+	 *            the executor
+	 */
+	void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Enqueue the events without blocking. Called by the cache while holding
+	 * its lock.
+	 *
+	 * @param events
+	 *            the events
+	 * @return the events which didn't fit in the queue
+	 */
+	List<CacheEvent<V>> enqueue(List<CacheEvent<V>> events) {
+		for (int i = 0; i < events.size(); i++) {
+			if (!queue.offer(events.get(i))) {
+				return events.subList(i, events.size());
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Enqueue the events which didn't fit in the queue, delivering batches
+	 * from the calling thread until they fit, and schedule the delivery task.
+	 * Called by the cache once it has released its lock.
+	 *
+	 * @param overflow
+	 *            the events returned by {@link #enqueue(List)}
+	 */
+	void dispatch(List<CacheEvent<V>> overflow) {
+		for (CacheEvent<V> event : overflow) {
+			while (!queue.offer(event)) {
+				deliverBatch();
+			}
+		}
+		schedule();
+	}
+
+	/**
+	 * Deliver all the queued events from the calling thread.
+	 */
+	void drain() {
+		while (deliverBatch()) {
+			/*
+			 * Deliver until the queue is empty
+			 */
+		}
+	}
+
+	/**
+	 * Deliver the queued events until the queue is empty.
+	 *
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			drain();
+		} finally {
+			scheduled.set(false);
+		}
+		/*
+		 * Events enqueued after the last batch but before the flag was cleared
+		 * did not schedule a task
+		 */
+		schedule();
+	}
+
+	/**
+	 * Schedule the delivery task unless it is already scheduled or there is
+	 * nothing to deliver. If the executor rejects the task, the events are
+	 * delivered from the calling thread.
+	 */
+	private void schedule() {
+		if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				run();
+			}
+		}
+	}
+
+	/**
+	 * Deliver the next batch of events to the listeners.
+	 *
+	 * @return true, if a batch has been delivered
+	 */
+	private boolean deliverBatch() {
+		deliveryLock.lock();
+		try {
+			List<CacheEvent<V>> batch = new ArrayList<CacheEvent<V>>(Math.min(queue.size(), MAX_BATCH_SIZE));
+			queue.drainTo(batch, MAX_BATCH_SIZE);
+			if (batch.isEmpty()) {
+				return false;
+			}
+			List<CacheEvent<V>> events = Collections.unmodifiableList(batch);
+			for (CacheEventListener<V> listener : eventListeners) {
+				try {
+					listener.onEvents(events);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+			for (RemovalListener<V> listener : removalListeners) {
+				for (CacheEvent<V> event : batch) {
+					if (event.getType() == CacheEvent.Type.INSERTED) {
+						continue;
+					}
+					CacheElement<V> removed = event.getType() == CacheEvent.Type.UPDATED ? event.getOldElement()
+							: event.getElement();
+					try {
+						listener.onRemoval(removed, event.getCause());
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+			return true;
+		} finally {
+			deliveryLock.unlock();
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.cache;
+
+import java.util.List;
+
+/**
+ * The listener interface for receiving every change made to a cache. The
+ * events are delivered asynchronously in batches, in the order they happened.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+@FunctionalInterface
+public interface CacheEventListener<V> {
+
+	/**
+	 * Called with the next batch of events.
+	 *
+	 * @param events
+	 *            the events, oldest first
+	 */
+	public void onEvents(List<CacheEvent<V>> events);
+}
@@ -1,18 +1,62 @@
 package com.cache;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
- * The Class CacheKey.
+ * The Class CacheKey identifies an element of a cache. A key is either a plain
+ * string key, created with {@link #CacheKey(String)}, or a composite key made
+ * of several typed parts, created with {@link #of(String, long)} or
+ * {@link #of(Object...)}, which spares building a string for every lookup.
+ * Keys of different kinds are never equal, even if their parts read the same.
+ * <p>
+ * The hash code of a key is computed once, when the key is created, and mixed
+ * so that similar keys spread evenly over the buckets of a map and the shards
+ * of a cache. It depends on the values of the parts only, so that every node
+ * of a distributed cache routes a key alike. Frequently used keys can be
+ * shared through a {@link KeyInterner}.
  */
 public final class CacheKey implements Serializable {
 
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 8486764429840157972L;
 
-	/** The key. */
+	/** The separator of the parts of a composite key in its string form. */
+	static final char PART_SEPARATOR = ':';
+
+	/** The kind of a plain string key. */
+	private static final byte PLAIN = 0;
+
+	/** The kind of a composite key of a string and a long. */
+	private static final byte STRING_LONG = 1;
+
+	/** The kind of a composite key of any parts. */
+	private static final byte PARTS = 2;
+
+	/** The FNV-1a 64-bit offset basis. */
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	/** The FNV-1a 64-bit prime. */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * The key, or the string part of a key of a string and a long, null for a
+	 * key of any parts.
+	 */
 	private final String key;
 
+	/** The long part of a key of a string and a long. */
+	private final long number;
+
+	/** The parts of a key of any parts, null for the other kinds. */
+	private final Object[] parts;
+
+	/** The kind of the key, 0 for the keys serialized before composite keys. */
+	private final byte kind;
+
+	/** The mixed hash code, computed once. */
+	private transient int hash;
+
 	/**
 	 * Instantiates a new cache key.
 	 *
@@ -20,43 +64,249 @@ public final class CacheKey implements Serializable {
 	 *            the key
 	 */
 	public CacheKey(String key) {
+		this(PLAIN, key, 0, null);
+	}
+
+	/**
+	 * Instantiates a new cache key of the given kind.
+	 *
+	 * @param kind
+	 *            the kind
+	 * @param key
+	 *            the key or the string part
+	 * @param number
+	 *            the long part
+	 * @param parts
+	 *            the parts, owned by the key
+	 */
+	private CacheKey(byte kind, String key, long number, Object[] parts) {
+		this.kind = kind;
 		this.key = key;
+		this.number = number;
+		this.parts = parts;
+		this.hash = mix(rawHashCode());
 	}
 
 	/**
-	 * Gets the key.
+	 * Create a composite key of a string and a long, such as a tenant and an
+	 * id, without boxing the long.
+	 *
+	 * @param first
+	 *            the string part
+	 * @param second
+	 *            the long part
+	 * @return the cache key
+	 */
+	public static CacheKey of(String first, long second) {
+		return new CacheKey(STRING_LONG, first, second, null);
+	}
+
+	/**
+	 * Create a composite key of the given parts. The parts must be immutable
+	 * and serializable, with equals and hashCode based on their value, such
+	 * as strings and numbers. Enums are accepted too, and hashed by name, as
+	 * their own hash code differs from one JVM to another.
+	 *
+	 * @param parts
+	 *            the parts
+	 * @return the cache key
+	 */
+	public static CacheKey of(Object... parts) {
+		return new CacheKey(PARTS, null, 0, parts.clone());
+	}
+
+	/**
+	 * Gets the key. The string form of a composite key joins its parts with a
+	 * colon.
 	 *
 	 * @return the key
 	 */
 	public String getKey() {
-		return key;
+		switch (kind) {
+		case STRING_LONG:
+			return key + PART_SEPARATOR + number;
+		case PARTS:
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < parts.length; i++) {
+				if (i > 0) {
+					builder.append(PART_SEPARATOR);
+				}
+				builder.append(parts[i]);
+			}
+			return builder.toString();
+		default:
+			return key;
+		}
 	}
 
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @see java.lang.Object#equals(java.lang.Object)
 	 */
 	@Override
 	public boolean equals(Object obj) {
-		if (!(obj instanceof CacheKey)) {
-			return false;
-		}
 		if (this == obj) {
 			return true;
 		}
+		if (!(obj instanceof CacheKey)) {
+			return false;
+		}
 		CacheKey k1 = (CacheKey) obj;
-		return key.equals(k1.getKey());
+		if (hash != k1.hash || kind != k1.kind) {
+			return false;
+		}
+		switch (kind) {
+		case STRING_LONG:
+			return number == k1.number && key.equals(k1.key);
+		case PARTS:
+			return Arrays.equals(parts, k1.parts);
+		default:
+			return key.equals(k1.key);
+		}
 	}
 
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @see java.lang.Object#hashCode()
 	 */
 	@Override
 	public int hashCode() {
-		return key.hashCode();
+		return hash;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return getKey();
+	}
+
+	/**
+	 * Compute the hash code again once a key has been deserialized, as it
+	 * isn't serialized.
+	 *
+	 * @return the key
+	 */
+	Object readResolve() {
+		hash = mix(rawHashCode());
+		return this;
+	}
+
+	/**
+	 * Return the hash code of the key before mixing. The hash code of a part
+	 * is that of its value, the name of an enum.
+	 *
+	 * @return the raw hash code
+	 */
+	private int rawHashCode() {
+		switch (kind) {
+		case STRING_LONG:
+			return 31 * key.hashCode() + Long.hashCode(number);
+		case PARTS:
+			int h = 1;
+			for (Object part : parts) {
+				int partHash;
+				if (part == null) {
+					partHash = 0;
+				} else if (part instanceof Enum) {
+					partHash = ((Enum<?>) part).name().hashCode();
+				} else {
+					partHash = part.hashCode();
+				}
+				h = 31 * h + partHash;
+			}
+			return h;
+		default:
+			return key.hashCode();
+		}
+	}
+
+	/**
+	 * Return a 64-bit hash of the key, the same in every JVM, for the Bloom
+	 * filters and the binary traces. It is computed from the parts, without
+	 * building the string form of a composite key.
+	 *
+	 * @return the 64-bit hash
+	 */
+	long hash64() {
+		long h = FNV_OFFSET ^ kind;
+		switch (kind) {
+		case STRING_LONG:
+			h = fnv(fnv(h, key), number);
+			break;
+		case PARTS:
+			for (Object part : parts) {
+				if (part instanceof String) {
+					h = fnv(h, (String) part);
+				} else if (part instanceof Enum) {
+					h = fnv(h, ((Enum<?>) part).name());
+				} else if (part instanceof Long || part instanceof Integer || part instanceof Short
+						|| part instanceof Byte) {
+					h = fnv(h, ((Number) part).longValue());
+				} else {
+					h = fnv(h, part == null ? 0 : part.hashCode());
+				}
+				// Separate the parts, so that ("ab", "c") and ("a", "bc") differ
+				h = (h ^ PART_SEPARATOR) * FNV_PRIME;
+			}
+			break;
+		default:
+			h = fnv(h, key);
+		}
+		return ConsistentHashRing.mix(h);
+	}
+
+	/**
+	 * Add the characters of a string to an FNV-1a hash.
+	 *
+	 * @param h
+	 *            the hash
+	 * @param s
+	 *            the string
+	 * @return the new hash
+	 */
+	private static long fnv(long h, String s) {
+		for (int i = 0; i < s.length(); i++) {
+			h = (h ^ s.charAt(i)) * FNV_PRIME;
+		}
+		return h;
+	}
+
+	/**
+	 * Add a long to an FNV-1a hash, a byte at a time.
+	 *
+	 * @param h
+	 *            the hash
+	 * @param value
+	 *            the long
+	 * @return the new hash
+	 */
+	private static long fnv(long h, long value) {
+		for (int i = 0; i < 64; i += 8) {
+			h = (h ^ ((value >>> i) & 0xff)) * FNV_PRIME;
+		}
+		return h;
+	}
+
+	/**
+	 * The MurmurHash3 32-bit finalizer, which makes every bit of the hash code
+	 * depend on every bit of the raw hash code.
+	 *
+	 * @param h
+	 *            the raw hash code
+	 * @return the mixed hash code
+	 */
+	static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
 }
@@ -0,0 +1,24 @@
+package com.cache;
+
+/**
+ * The Interface CacheLoader reads the value of a key from the store a cache is
+ * caching, such as a database, so that the cache can be filled before it is
+ * used (see {@link CacheWarmer}).
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+@FunctionalInterface
+public interface CacheLoader<V> {
+
+	/**
+	 * Load the value of a key from the store.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 * @return the value, or null if the store doesn't hold the key
+	 * @throws Exception
+	 *             if the value can't be loaded
+	 */
+	public V load(CacheKey cacheKey) throws Exception;
+}
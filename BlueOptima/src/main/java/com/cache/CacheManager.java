@@ -7,10 +7,13 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.exception.ConfFileNotFoundException;
 
@@ -23,10 +26,29 @@ import com.exception.ConfFileNotFoundException;
  * <li>The number of entries in a cache are limited by the maxSize property in
  * the configuration file.
  * <li>Least-recently-used eviction when a maximum size is exceeded
+ * <li>A choice of engine, set by the engine property: lru for a cache guarded
+ * by a single lock, or concurrent for a cache whose lookups take no lock.
+ * <li>Optional splitting of a cache into several independently locked shards,
+ * set by the shards property.
  * <li>Time-based expiration of entries, measured since last access or last
- * write.
+ * write as set by the expiryMode property. An element created with its own
+ * time to live keeps it.
+ * <li>Optional soft or weak references to the values, set by the valueStrength
+ * property, and shrinking of all the caches when the old generation of the
+ * heap fills up beyond the heapPressureThreshold property.
+ * <li>Optional adaptive sizing, set by the adaptiveSizing property: every cache
+ * starts at minSize and its size is tuned on its hit rate, up to maxSize,
+ * within a memoryBudget of elements shared by all the caches.
  * <li>File system backup of the cache to facilitate restoration on restart.
+ * <li>Warming up of a cache on start up from a list of keys, such as the
+ * hottest keys of the previous run (see
+ * {@link #warmUp(String, Collection, CacheLoader, int, double)}).
  * </ul>
+ * Every property of a cache can be overridden for a single cache by prefixing
+ * it with the cache name, such as cache.users.maxSize (see
+ * {@link CacheConfig}). With the watchConfig property, the changes of the
+ * configuration file are applied to the live caches (see
+ * {@link #applyConfiguration(Properties)}).
  *
  */
 public class CacheManager {
@@ -34,41 +56,71 @@ public class CacheManager {
 	/** The Constant CACHE_CONFIG_FILE. */
 	private static final String CACHE_CONFIG_FILE = "resources/CacheConfig.properties";
 
-	/** The Constant CACHE_SIZE. */
-	private static final String CACHE_SIZE = "maxSize";
+	/** The Constant BACKUP_PATH. */
+	private static final String BACKUP_PATH = "BackupPath";
 
-	/** The Constant TIME_TO_LIVE. */
-	private static final String TIME_TO_LIVE = "timeToLive";
+	/** The Constant HEAP_PRESSURE_THRESHOLD. */
+	private static final String HEAP_PRESSURE_THRESHOLD = "heapPressureThreshold";
 
-	/** The Constant BACKUP. */
-	private static final String BACKUP = "backup";
+	/** The time interval(in seconds) between two checks of the heap. */
+	private static final int HEAP_PRESSURE_CHECK_INTERVAL = 5;
 
-	/** The Constant CLEANUP_INTERVAL. */
-	private static final String CLEANUP_INTERVAL = "CleanupInterval";
+	/** The smallest fraction of their size caches shrink to under pressure. */
+	private static final double MIN_CAPACITY_FACTOR = 0.1;
 
-	/** The Constant BACKUP_PATH. */
-	private static final String BACKUP_PATH = "BackupPath";
+	/** The Constant ADAPTIVE_SIZING. */
+	private static final String ADAPTIVE_SIZING = "adaptiveSizing";
+
+	/** The Constant MEMORY_BUDGET. */
+	private static final String MEMORY_BUDGET = "memoryBudget";
+
+	/** The Constant ADAPT_INTERVAL. */
+	private static final String ADAPT_INTERVAL = "adaptInterval";
+
+	/** The Constant CONCURRENT_ENGINE. */
+	private static final String CONCURRENT_ENGINE = "concurrent";
+
+	/** The Constant WATCH_CONFIG. */
+	private static final String WATCH_CONFIG = "watchConfig";
+
+	/** The Constant NEAR_CACHE_SIZE. */
+	private static final String NEAR_CACHE_SIZE = "nearCacheSize";
 
 	/** The cache manager. */
 	private static volatile CacheManager cacheManager;
 
-	/** The cache properties. */
-	private Properties cacheProperties;
+	/** The cache properties, replaced when the configuration file changes. */
+	private volatile Properties cacheProperties;
+
+	/** The path of the configuration file. */
+	private Path cacheConfigPath;
 
-	/** The cache backup. */
-	private CacheBackup cacheBackup;
+	/** The cache backup, created when the first cache to back up is created. */
+	private volatile CacheBackup cacheBackup;
 
 	/** The list of caches. */
-	private HashMap<String, Cache<?>> listOfCaches;
+	private ConcurrentHashMap<String, Cache<?>> listOfCaches;
 
-	/** The maximum cache size. */
-	private int cacheSize;
+	/** The cleanup thread of every cache. */
+	private ConcurrentHashMap<Cache<?>, CacheCleanup> cleanupThreads;
 
-	/** The time to live. */
-	private int timeToLive;
+	/** The configuration every cache was last configured with. */
+	private ConcurrentHashMap<Cache<?>, CacheConfig> cacheConfigs;
 
-	/** The time interval after which a cleanup of the cache is triggered. */
-	private int cleanupInterval;
+	/** The fraction of the cache size the caches currently run at. */
+	private volatile double capacityFactor = 1.0;
+
+	/** The total number of elements the adaptively sized caches may hold. */
+	private long memoryBudget;
+
+	/** The watcher of the configuration file, if watchConfig is on. */
+	private CacheConfigWatcher configWatcher;
+
+	/** The sizer tuning the size of the caches, if adaptive sizing is on. */
+	private AdaptiveSizer adaptiveSizer;
+
+	/** The maximum number of remote elements kept by a distributed cache. */
+	private int nearCacheSize;
 
 	/** The path where all the caches are backed up. */
 	private String backupPath;
@@ -76,9 +128,6 @@ public class CacheManager {
 	/** The path where all the caches are backed up. */
 	private Path cacheBackupPath;
 
-	/** The flag to indicate whether backup has been enabled or not. */
-	private boolean isBackupEnabled;
-
 	/**
 	 * Instantiates a new cache manager.
 	 *
@@ -94,6 +143,7 @@ public class CacheManager {
 		if (cacheConfigFile.equals("") || cacheConfigFile == null) {
 			throw new ConfFileNotFoundException("Cache configuration file not found");
 		}
+		cacheConfigPath = Paths.get(cacheConfigFile);
 		cacheProperties = new Properties();
 		try {
 			cacheProperties.load(new FileInputStream(cacheConfigFile));
@@ -113,24 +163,125 @@ public class CacheManager {
 	 * Initialize.
 	 */
 	private void initialize() {
-		cacheSize = Integer.parseInt(cacheProperties.getProperty(CACHE_SIZE));
-		timeToLive = Integer.parseInt(cacheProperties.getProperty(TIME_TO_LIVE));
-		cleanupInterval = Integer.parseInt(cacheProperties.getProperty(CLEANUP_INTERVAL));
+		CacheConfig globalConfig = CacheConfig.global(cacheProperties);
+		int cacheSize = globalConfig.getMaxSize();
+		nearCacheSize = Integer.parseInt(cacheProperties.getProperty(NEAR_CACHE_SIZE, String.valueOf(cacheSize)));
 
 		backupPath = cacheProperties.getProperty(BACKUP_PATH);
 		cacheBackupPath = Paths.get(backupPath);
 
-		isBackupEnabled = Boolean.parseBoolean(cacheProperties.getProperty(BACKUP));
+		listOfCaches = new ConcurrentHashMap<String, Cache<?>>();
+		cleanupThreads = new ConcurrentHashMap<Cache<?>, CacheCleanup>();
+		cacheConfigs = new ConcurrentHashMap<Cache<?>, CacheConfig>();
 
 		/**
-		 * Initialize the cache backup process as a shutdown hook
+		 * Tune the size of the caches on their hit rate
 		 */
-		if (isBackupEnabled) {
-			cacheBackup = CacheBackup.getCacheBackup(cacheBackupPath);
-			Runtime.getRuntime().addShutdownHook(cacheBackup);
+		if (Boolean.parseBoolean(cacheProperties.getProperty(ADAPTIVE_SIZING, "false").trim())) {
+			memoryBudget = Long.parseLong(cacheProperties.getProperty(MEMORY_BUDGET, String.valueOf(cacheSize)));
+			int adaptInterval = Integer.parseInt(cacheProperties.getProperty(ADAPT_INTERVAL, "10"));
+			adaptiveSizer = new AdaptiveSizer(globalConfig.getMinSize(), cacheSize, memoryBudget, adaptInterval);
+			adaptiveSizer.start();
+		}
+
+		/**
+		 * Shrink the caches when the old generation fills up
+		 */
+		double heapPressureThreshold = Double.parseDouble(cacheProperties.getProperty(HEAP_PRESSURE_THRESHOLD, "0"));
+		if (heapPressureThreshold > 0) {
+			HeapPressureMonitor heapPressureMonitor = new HeapPressureMonitor(heapPressureThreshold,
+					HEAP_PRESSURE_CHECK_INTERVAL, new HeapPressureHandler());
+			heapPressureMonitor.start();
+		}
+
+		/**
+		 * Apply the changes of the configuration file to the live caches
+		 */
+		if (Boolean.parseBoolean(cacheProperties.getProperty(WATCH_CONFIG, "false").trim())) {
+			try {
+				configWatcher = new CacheConfigWatcher(cacheConfigPath, this::applyConfiguration);
+				configWatcher.start();
+			} catch (IOException e) {
+				System.err.println("Cannot watch the cache configuration file" + e.getMessage());
+			}
 		}
+	}
 
-		listOfCaches = new HashMap<String, Cache<?>>();
+	/**
+	 * Stop applying the changes of the configuration file to the live caches,
+	 * if watchConfig is on. They can still be applied with
+	 * {@link #applyConfiguration(Properties)}.
+	 */
+	public synchronized void stopWatchingConfiguration() {
+		if (configWatcher != null) {
+			configWatcher.shutdown();
+			configWatcher = null;
+		}
+	}
+
+	/**
+	 * Apply a new version of the configuration file to the live caches. The
+	 * size, time to live, expiry mode, value strength, negative caching, value
+	 * compression, cleanup interval and backup of every cache are changed in
+	 * place; the new time to live, value strength and compression apply to
+	 * the elements inserted from now on. The engine and number of shards of a
+	 * cache only change when the cache is created again, and the settings
+	 * shared by all the caches, such as the heap pressure threshold, only on
+	 * restart.
+	 *
+	 * @param properties
+	 *            the properties of the new configuration file
+	 */
+	public synchronized void applyConfiguration(Properties properties) {
+		CacheConfig.global(properties);
+		Map<Cache<?>, CacheConfig> newConfigs = new HashMap<Cache<?>, CacheConfig>();
+		for (Cache<?> cache : listOfCaches.values()) {
+			newConfigs.put(cache, CacheConfig.forCache(properties, cache.getName()));
+		}
+		/*
+		 * The whole file has been validated, apply it
+		 */
+		cacheProperties = properties;
+		for (Map.Entry<Cache<?>, CacheConfig> entry : newConfigs.entrySet()) {
+			Cache<?> cache = entry.getKey();
+			CacheConfig oldConfig = cacheConfigs.get(cache);
+			CacheConfig config = entry.getValue();
+			if (oldConfig == null) {
+				continue;
+			}
+			if (adaptiveSizer != null) {
+				if (config.getMinSize() != oldConfig.getMinSize() || config.getMaxSize() != oldConfig.getMaxSize()) {
+					adaptiveSizer.setBounds(cache, config.getMinSize(), config.getMaxSize());
+				}
+			} else if (config.getMaxSize() != oldConfig.getMaxSize()) {
+				cache.setCacheSize(Math.max(1, (int) (config.getMaxSize() * capacityFactor)));
+			}
+			cache.setTimeToLive(config.getTimeToLive());
+			cache.setExpiryMode(config.getExpiryMode());
+			cache.setValueStrength(config.getValueStrength());
+			if (config.getNegativeCacheSize() != oldConfig.getNegativeCacheSize()
+					|| config.getNegativeTimeToLive() != oldConfig.getNegativeTimeToLive()) {
+				cache.setNegativeCaching(config.getNegativeCacheSize(), config.getNegativeTimeToLive());
+			}
+			if (config.getCompressionThreshold() != oldConfig.getCompressionThreshold()
+					|| config.getCompressionCodec() != oldConfig.getCompressionCodec()) {
+				cache.setValueCompression(config.newCompressionCodec(), config.getCompressionThreshold());
+			}
+			CacheCleanup cacheCleanup = cleanupThreads.get(cache);
+			if (cacheCleanup != null) {
+				cacheCleanup.setCleanupInterval(config.getCleanupInterval());
+			}
+			if (config.isBackupEnabled()) {
+				getCacheBackup().addCache(cache);
+			} else if (cacheBackup != null) {
+				cacheBackup.removeCache(cache);
+			}
+			if (!config.getEngine().equals(oldConfig.getEngine()) || config.getShards() != oldConfig.getShards()) {
+				System.err.println("The engine and shards of cache " + cache.getName()
+						+ " change when the cache is created again");
+			}
+			cacheConfigs.replace(cache, config);
+		}
 	}
 
 	/**
@@ -162,37 +313,189 @@ public class CacheManager {
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> Cache<T> getCache(String name) {
-		if (listOfCaches.containsKey(name)) {
-			return (Cache<T>) listOfCaches.get(name);
+		Cache<?> cache = listOfCaches.get(name);
+		if (cache == null) {
+			/*
+			 * The cache is created at most once even if several threads ask
+			 * for it at the same time
+			 */
+			cache = listOfCaches.computeIfAbsent(name, n -> {
+				CacheConfig config = getCacheConfig(n);
+				return register(createCache(config), config);
+			});
 		}
-		Cache<T> cache = null;
-		cache = new LRUCache<T>(name, cacheSize, timeToLive);
+		return (Cache<T>) cache;
+	}
 
-		if (isBackupEnabled) {
+	/**
+	 * Gets a reference to a cache, to be kept by a call site which uses the
+	 * cache on every request. The reference resolves the cache once and only
+	 * goes back to the registry if the cache is closed.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param name
+	 *            the name
+	 * @return the cache reference
+	 */
+	public <T> CacheReference<T> getCacheReference(String name) {
+		return new CacheReference<T>(this, name);
+	}
+
+	/**
+	 * Remove a cache from the registry, stop its cleanup thread and release
+	 * its elements. The cache is not backed up.
+	 *
+	 * @param name
+	 *            the name
+	 * @return true, if the cache existed
+	 */
+	public boolean removeCache(String name) {
+		Cache<?> cache = listOfCaches.remove(name);
+		if (cache == null) {
+			return false;
+		}
+		CacheCleanup cacheCleanup = cleanupThreads.remove(cache);
+		if (cacheCleanup != null) {
+			cacheCleanup.shutdown();
+		}
+		if (adaptiveSizer != null) {
+			adaptiveSizer.removeCache(cache);
+		}
+		cacheConfigs.remove(cache);
+		if (cacheBackup != null) {
+			cacheBackup.removeCache(cache);
+		}
+		cache.close();
+		return true;
+	}
+
+	/**
+	 * Close a cache: back it up on the file system if backup is enabled, so
+	 * that it can be restored later, then remove it like
+	 * {@link #removeCache(String)}.
+	 *
+	 * @param name
+	 *            the name
+	 * @return true, if the cache existed
+	 */
+	public boolean closeCache(String name) {
+		Cache<?> cache = listOfCaches.get(name);
+		if (cache == null) {
+			return false;
+		}
+		if (cacheBackup != null && cacheConfigs.containsKey(cache) && cacheConfigs.get(cache).isBackupEnabled()) {
+			cacheBackup.backupCache(cache);
+		}
+		return removeCache(name);
+	}
+
+	/**
+	 * Gets the configuration of a cache, from the properties prefixed with
+	 * its name and the global properties.
+	 *
+	 * @param name
+	 *            the cache name
+	 * @return the cache configuration
+	 */
+	public CacheConfig getCacheConfig(String name) {
+		return CacheConfig.forCache(cacheProperties, name);
+	}
+
+	/**
+	 * Create a cache using the configured engine.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param config
+	 *            the cache configuration
+	 * @return the cache
+	 */
+	private <T> Cache<T> createCache(CacheConfig config) {
+		String name = config.getCacheName();
+		if (config.getShards() > 1) {
+			return new ShardedCache<T>(name, config.getMaxSize(), config.getTimeToLive(), config.getShards());
+		} else if (CONCURRENT_ENGINE.equals(config.getEngine())) {
+			return new ConcurrentLRUCache<T>(name, config.getMaxSize(), config.getTimeToLive());
+		}
+		return new LRUCache<T>(name, config.getMaxSize(), config.getTimeToLive());
+	}
+
+	/**
+	 * Set up the backup and the cleanup thread of a newly created cache.
+	 *
+	 * @param cache
+	 *            the cache instance
+	 * @param config
+	 *            the cache configuration
+	 * @return the cache instance
+	 */
+	private Cache<?> register(Cache<?> cache, CacheConfig config) {
+		cache.setExpiryMode(config.getExpiryMode());
+		cache.setValueStrength(config.getValueStrength());
+		cache.setNegativeCaching(config.getNegativeCacheSize(), config.getNegativeTimeToLive());
+		cache.setValueCompression(config.newCompressionCodec(), config.getCompressionThreshold());
+		if (adaptiveSizer != null) {
+			adaptiveSizer.addCache(cache, config.getWeight(), config.getMinSize(), config.getMaxSize());
+		} else if (capacityFactor < 1.0) {
+			cache.setCacheSize(Math.max(1, (int) (config.getMaxSize() * capacityFactor)));
+		}
+		cacheConfigs.put(cache, config);
+
+		if (config.isBackupEnabled()) {
 			addCacheForBackup(cache);
 		}
 
 		/*
 		 * Initialize the cleanup thread
 		 */
-		intializeCacheCleanup(cache);
-
-		listOfCaches.put(name, cache);
-
+		intializeCacheCleanup(cache, config.getCleanupInterval());
 		return cache;
 	}
 
+	/**
+	 * Gets an instance of a distributed cache whose elements are partitioned
+	 * across the nodes reachable through the given transport. The cache must
+	 * be created with the same name on every node.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param name
+	 *            the name
+	 * @param transport
+	 *            the transport connecting the nodes
+	 * @return the cache
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> DistributedCache<T> getDistributedCache(String name, CacheTransport transport) {
+		Cache<?> existing = listOfCaches.get(name);
+		if (existing == null) {
+			existing = listOfCaches.computeIfAbsent(name, n -> {
+				CacheConfig config = getCacheConfig(n);
+				return register(new DistributedCache<T>(n, config.getMaxSize(), config.getTimeToLive(), nearCacheSize,
+						transport), config);
+			});
+		}
+		if (!(existing instanceof DistributedCache)) {
+			throw new IllegalStateException("Cache " + name + " already exists and is not distributed");
+		}
+		return (DistributedCache<T>) existing;
+	}
+
 	/**
 	 * Create and start the cleanup thread for a cache.
 	 *
 	 * @param cache
 	 *            the cache instance
+	 * @param cleanupInterval
+	 *            the time interval(in minutes) between two cleanups
 	 */
-	private void intializeCacheCleanup(Cache<?> cache) {
+	private void intializeCacheCleanup(Cache<?> cache, int cleanupInterval) {
 		/*
 		 * Initialize the cleanup thread
 		 */
 		CacheCleanup cacheCleanup = new CacheCleanup(cache, cleanupInterval);
+		cleanupThreads.put(cache, cacheCleanup);
 		cacheCleanup.start();
 	}
 
@@ -203,16 +506,27 @@ public class CacheManager {
 	 *            the cache instance
 	 */
 	private void addCacheForBackup(Cache<?> cache) {
-		/*
-		 * Initialize the cleanup thread
-		 */
-		if (isBackupEnabled) {
-			cacheBackup.addCache(cache);
+		getCacheBackup().addCache(cache);
+	}
+
+	/**
+	 * Gets the cache backup, initializing the backup process as a shutdown
+	 * hook when the first cache to back up is created.
+	 *
+	 * @return the cache backup
+	 */
+	private synchronized CacheBackup getCacheBackup() {
+		if (cacheBackup == null) {
+			cacheBackup = CacheBackup.getCacheBackup(cacheBackupPath);
+			Runtime.getRuntime().addShutdownHook(cacheBackup);
 		}
+		return cacheBackup;
 	}
 
 	/**
-	 * Restore the cache from the backup file.
+	 * Restore the cache from the backup file. The restored elements are not
+	 * written back to the store through the cache writer, as they may be
+	 * older than what the store holds.
 	 *
 	 * @param cacheName
 	 *            the cache name
@@ -234,7 +548,7 @@ public class CacheManager {
 				Iterator<CacheElement<T>> itr = objectList.iterator();
 				cache = getCache(cacheName);
 				while (itr.hasNext()) {
-					cache.insert((CacheElement<T>) itr.next());
+					cache.insertLoaded((CacheElement<T>) itr.next());
 				}
 			} catch (ClassNotFoundException e) {
 				System.err.println("CacheElement class not found" + e.getMessage());
@@ -253,6 +567,35 @@ public class CacheManager {
 		return cache;
 	}
 
+	/**
+	 * Warm up a cache before it is used, by loading the given keys from the
+	 * store with a bounded number of threads and at a bounded rate (see
+	 * {@link CacheWarmer}). Meant to be called on start up, after
+	 * {@link #restoreCache(String)} if the cache is backed up, and before the
+	 * service reports ready.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param cacheName
+	 *            the cache name
+	 * @param keys
+	 *            the keys to load, hottest first
+	 * @param loader
+	 *            the loader reading the values from the store
+	 * @param parallelism
+	 *            the maximum number of keys loaded at the same time
+	 * @param loadsPerSecond
+	 *            the maximum number of keys loaded per second, 0 for no limit
+	 * @return the number of elements loaded
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the loads
+	 */
+	public <T> int warmUp(String cacheName, Collection<CacheKey> keys, CacheLoader<T> loader, int parallelism,
+			double loadsPerSecond) throws InterruptedException {
+		Cache<T> cache = getCache(cacheName);
+		return new CacheWarmer<T>(cache, loader, parallelism, loadsPerSecond).warmUp(keys);
+	}
+
 	/**
 	 * Removes the backup file.
 	 *
@@ -264,4 +607,53 @@ public class CacheManager {
 			backupFile.delete();
 		}
 	}
+
+	/**
+	 * The Class HeapPressureHandler shrinks all the caches by half every time
+	 * the heap is found under pressure, down to a tenth of their configured
+	 * size, and restores their size once the pressure is relieved. With
+	 * adaptive sizing, the shared budget is shrunk and restored instead.
+	 */
+	private class HeapPressureHandler implements HeapPressureMonitor.Listener {
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see com.cache.HeapPressureMonitor.Listener#onHeapPressure(double)
+		 */
+		@Override
+		public void onHeapPressure(double occupancy) {
+			if (capacityFactor > MIN_CAPACITY_FACTOR) {
+				capacityFactor = Math.max(MIN_CAPACITY_FACTOR, capacityFactor / 2);
+				System.err.println("Heap occupancy " + Math.round(occupancy * 100) + "%, shrinking the caches to "
+						+ Math.round(capacityFactor * 100) + "% of their size");
+				resizeCaches();
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see com.cache.HeapPressureMonitor.Listener#onHeapRelief(double)
+		 */
+		@Override
+		public void onHeapRelief(double occupancy) {
+			capacityFactor = 1.0;
+			resizeCaches();
+		}
+
+		/**
+		 * Apply the capacity factor to all the caches, or to the budget of the
+		 * adaptively sized caches.
+		 */
+		private void resizeCaches() {
+			if (adaptiveSizer != null) {
+				adaptiveSizer.setBudget(Math.max(1, (long) (memoryBudget * capacityFactor)));
+				return;
+			}
+			for (Map.Entry<Cache<?>, CacheConfig> entry : cacheConfigs.entrySet()) {
+				entry.getKey().setCacheSize(Math.max(1, (int) (entry.getValue().getMaxSize() * capacityFactor)));
+			}
+		}
+	}
 }
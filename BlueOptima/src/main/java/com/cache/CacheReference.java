@@ -0,0 +1,59 @@
+package com.cache;
+
+/**
+ * The Class CacheReference is a handle on a named cache meant to be kept by a
+ * call site, typically in a static final field, so that the hot path does not
+ * go through the {@link CacheManager} registry on every request. The cache is
+ * resolved on first use and resolved again if it has been closed in the
+ * meantime.
+ *
+ * @param <T>
+ *            the value type of the cache
+ */
+public final class CacheReference<T> {
+
+	/** The cache manager. */
+	private final CacheManager cacheManager;
+
+	/** The cache name. */
+	private final String cacheName;
+
+	/** The resolved cache. */
+	private volatile Cache<T> cache;
+
+	/**
+	 * Instantiates a new cache reference.
+	 *
+	 * @param cacheManager
+	 *            the cache manager
+	 * @param cacheName
+	 *            the cache name
+	 */
+	CacheReference(CacheManager cacheManager, String cacheName) {
+		this.cacheManager = cacheManager;
+		this.cacheName = cacheName;
+	}
+
+	/**
+	 * Gets the cache, creating it if it doesn't exist.
+	 *
+	 * @return the cache
+	 */
+	public Cache<T> get() {
+		Cache<T> current = cache;
+		if (current == null || current.isClosed()) {
+			current = cacheManager.<T> getCache(cacheName);
+			cache = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Gets the cache name.
+	 *
+	 * @return the cache name
+	 */
+	public String getName() {
+		return cacheName;
+	}
+}
@@ -0,0 +1,273 @@
+package com.cache;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The Class CacheSimulator replays a trace of the accesses to a cache against
+ * the cache engines at many sizes, and reports the hit rate of every engine at
+ * every size. The resulting curve shows the size beyond which a cache stops
+ * paying for its memory, and which engine suits the workload.
+ * <p>
+ * Every access of the trace is replayed as a lookup, followed by an insertion
+ * if the lookup missed, as an application filling the cache on demand would
+ * do. The elements never expire. Each engine and size is simulated on its own
+ * cache instance, in parallel.
+ * <p>
+ * The traces are recorded with a {@link TraceRecorder}, or produced by any
+ * tool writing one of the {@link TraceFormat}s. The simulator can be run from
+ * the command line:
+ *
+ * <pre>
+ * java com.cache.CacheSimulator trace [text|binary] [minSize] [maxSize] [steps]
+ * </pre>
+ */
+public class CacheSimulator {
+
+	/** The Constant DEFAULT_MIN_SIZE. */
+	private static final int DEFAULT_MIN_SIZE = 100;
+
+	/** The Constant DEFAULT_MAX_SIZE. */
+	private static final int DEFAULT_MAX_SIZE = 100000;
+
+	/** The Constant DEFAULT_STEPS. */
+	private static final int DEFAULT_STEPS = 10;
+
+	/** The number of shards of the simulated sharded cache. */
+	private static final int SIMULATED_SHARDS = 4;
+
+	/**
+	 * The Enum Policy lists the engines which can be simulated.
+	 */
+	public enum Policy {
+
+		/** The {@link LRUCache}, with exact LRU order. */
+		LRU {
+			@Override
+			Cache<Boolean> create(int size) {
+				return new LRUCache<Boolean>("Simulation", size, 0);
+			}
+		},
+
+		/** The {@link ConcurrentLRUCache}, with approximate LRU order. */
+		CONCURRENT {
+			@Override
+			Cache<Boolean> create(int size) {
+				return new ConcurrentLRUCache<Boolean>("Simulation", size, 0);
+			}
+		},
+
+		/** The {@link ShardedCache}, with an LRU order per shard. */
+		SHARDED {
+			@Override
+			Cache<Boolean> create(int size) {
+				return new ShardedCache<Boolean>("Simulation", size, 0, SIMULATED_SHARDS);
+			}
+		};
+
+		/**
+		 * Create an empty cache of the given size.
+		 *
+		 * @param size
+		 *            the size
+		 * @return the cache
+		 */
+		abstract Cache<Boolean> create(int size);
+	}
+
+	/** The trace. */
+	private final List<CacheKey> trace;
+
+	/** The number of simulations run at the same time. */
+	private final int parallelism;
+
+	/**
+	 * Instantiates a new cache simulator using all the processors.
+	 *
+	 * @param trace
+	 *            the accessed keys, in order
+	 */
+	public CacheSimulator(List<CacheKey> trace) {
+		this(trace, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Instantiates a new cache simulator.
+	 *
+	 * @param trace
+	 *            the accessed keys, in order
+	 * @param parallelism
+	 *            the number of simulations run at the same time
+	 */
+	public CacheSimulator(List<CacheKey> trace, int parallelism) {
+		this.trace = trace;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Replay the trace against every policy at every size.
+	 *
+	 * @param policies
+	 *            the policies
+	 * @param sizes
+	 *            the cache sizes
+	 * @return the hit rate, between 0 and 1, by size, by policy
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the simulations
+	 */
+	public Map<Policy, SortedMap<Integer, Double>> simulate(Collection<Policy> policies, int[] sizes)
+			throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		try {
+			Map<Policy, Map<Integer, Future<Double>>> futures = new EnumMap<Policy, Map<Integer, Future<Double>>>(
+					Policy.class);
+			for (Policy policy : policies) {
+				Map<Integer, Future<Double>> bySize = new TreeMap<Integer, Future<Double>>();
+				for (int size : sizes) {
+					bySize.put(size, executor.submit(() -> hitRate(policy, size)));
+				}
+				futures.put(policy, bySize);
+			}
+			Map<Policy, SortedMap<Integer, Double>> curves = new EnumMap<Policy, SortedMap<Integer, Double>>(
+					Policy.class);
+			for (Map.Entry<Policy, Map<Integer, Future<Double>>> entry : futures.entrySet()) {
+				SortedMap<Integer, Double> curve = new TreeMap<Integer, Double>();
+				for (Map.Entry<Integer, Future<Double>> future : entry.getValue().entrySet()) {
+					try {
+						curve.put(future.getKey(), future.getValue().get());
+					} catch (ExecutionException e) {
+						throw new IllegalStateException("Simulation failed", e.getCause());
+					}
+				}
+				curves.put(entry.getKey(), curve);
+			}
+			return curves;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Replay the trace against one policy at one size.
+	 *
+	 * @param policy
+	 *            the policy
+	 * @param size
+	 *            the cache size
+	 * @return the hit rate, between 0 and 1
+	 */
+	public double hitRate(Policy policy, int size) {
+		if (trace.isEmpty()) {
+			return 0;
+		}
+		Cache<Boolean> cache = policy.create(size);
+		long hits = 0;
+		for (CacheKey cacheKey : trace) {
+			if (cache.get(cacheKey) != null) {
+				hits++;
+			} else {
+				cache.insert(new CacheElement<Boolean>(cacheKey, Boolean.TRUE));
+			}
+		}
+		return (double) hits / trace.size();
+	}
+
+	/**
+	 * Return the number of distinct keys in the trace, the size beyond which
+	 * only the compulsory misses are left.
+	 *
+	 * @return the distinct key count
+	 */
+	public int getDistinctKeyCount() {
+		return new HashSet<CacheKey>(trace).size();
+	}
+
+	/**
+	 * Return sizes spread geometrically between the minimum and the maximum,
+	 * so that the curve is as detailed for small caches as for large ones.
+	 *
+	 * @param minSize
+	 *            the minimum size
+	 * @param maxSize
+	 *            the maximum size
+	 * @param steps
+	 *            the number of sizes
+	 * @return the distinct sizes, in increasing order
+	 */
+	public static int[] sizes(int minSize, int maxSize, int steps) {
+		if (minSize <= 0 || maxSize < minSize || steps <= 0) {
+			throw new IllegalArgumentException("Expected 0 < minSize <= maxSize and steps > 0");
+		}
+		TreeSet<Integer> sizes = new TreeSet<Integer>();
+		double ratio = steps > 1 ? Math.pow((double) maxSize / minSize, 1.0 / (steps - 1)) : 1;
+		for (int i = 0; i < steps; i++) {
+			sizes.add((int) Math.round(minSize * Math.pow(ratio, i)));
+		}
+		sizes.add(maxSize);
+		return sizes.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Replay a trace file and print the hit rate curves as CSV, one line per
+	 * size and one column per policy.
+	 *
+	 * @param args
+	 *            the trace file, then optionally its format (text or binary,
+	 *            text by default), the minimum size, the maximum size and the
+	 *            number of sizes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the simulations
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 0) {
+			System.err.println("Usage: CacheSimulator trace [text|binary] [minSize] [maxSize] [steps]");
+			System.exit(1);
+		}
+		TraceFormat format = args.length > 1 ? TraceFormat.valueOf(args[1].toUpperCase(Locale.ROOT))
+				: TraceFormat.TEXT;
+		int minSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MIN_SIZE;
+		int maxSize = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_SIZE;
+		int steps = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_STEPS;
+
+		List<CacheKey> trace;
+		try (InputStream in = new FileInputStream(args[0])) {
+			trace = format.read(in);
+		}
+		CacheSimulator simulator = new CacheSimulator(trace);
+		List<Policy> policies = Arrays.asList(Policy.values());
+		Map<Policy, SortedMap<Integer, Double>> curves = simulator.simulate(policies, sizes(minSize, maxSize, steps));
+
+		System.out.println("# " + trace.size() + " accesses, " + simulator.getDistinctKeyCount() + " distinct keys");
+		List<String> header = new ArrayList<String>();
+		header.add("size");
+		for (Policy policy : policies) {
+			header.add(policy.name());
+		}
+		System.out.println(String.join(",", header));
+		for (int size : curves.get(policies.get(0)).keySet()) {
+			StringBuilder row = new StringBuilder().append(size);
+			for (Policy policy : policies) {
+				row.append(String.format(Locale.ROOT, ",%.4f", curves.get(policy).get(size)));
+			}
+			System.out.println(row);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package com.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Class CacheStats counts the lookups of a cache which found their element
+ * and those which didn't, and measures the value compression of the cache.
+ * The counters are striped, so that counting doesn't make the threads looking
+ * up a cache contend with each other.
+ */
+public final class CacheStats {
+
+	/** The number of lookups which found their element. */
+	private final LongAdder hits = new LongAdder();
+
+	/** The number of lookups which didn't find their element. */
+	private final LongAdder misses = new LongAdder();
+
+	/** The number of keys found to be absent from the store in memory. */
+	private final LongAdder negativeHits = new LongAdder();
+
+	/** The number of values the compression was tried on. */
+	private final LongAdder compressions = new LongAdder();
+
+	/** The size(in bytes) of the values the compression was tried on. */
+	private final LongAdder uncompressedBytes = new LongAdder();
+
+	/** The size(in bytes) those values are stored in. */
+	private final LongAdder compressedBytes = new LongAdder();
+
+	/** The time(in nanoseconds) spent compressing. */
+	private final LongAdder compressionTime = new LongAdder();
+
+	/** The number of values decompressed. */
+	private final LongAdder decompressions = new LongAdder();
+
+	/** The time(in nanoseconds) spent decompressing. */
+	private final LongAdder decompressionTime = new LongAdder();
+
+	/**
+	 * Count a lookup.
+	 *
+	 * @param hit
+	 *            whether the lookup found its element
+	 */
+	void recordLookup(boolean hit) {
+		if (hit) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+	}
+
+	/**
+	 * Count a key found to be absent from the store without going to it.
+	 */
+	void recordNegativeHit() {
+		negativeHits.increment();
+	}
+
+	/**
+	 * Count a value the compression was tried on.
+	 *
+	 * @param originalSize
+	 *            the size(in bytes) of the value
+	 * @param storedSize
+	 *            the size(in bytes) the value is stored in, the original size
+	 *            if it didn't get smaller
+	 * @param nanos
+	 *            the time(in nanoseconds) spent compressing
+	 */
+	void recordCompression(long originalSize, long storedSize, long nanos) {
+		compressions.increment();
+		uncompressedBytes.add(originalSize);
+		compressedBytes.add(storedSize);
+		compressionTime.add(nanos);
+	}
+
+	/**
+	 * Count a decompressed value.
+	 *
+	 * @param nanos
+	 *            the time(in nanoseconds) spent decompressing
+	 */
+	void recordDecompression(long nanos) {
+		decompressions.increment();
+		decompressionTime.add(nanos);
+	}
+
+	/**
+	 * Gets the number of lookups which found their element.
+	 *
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of lookups which didn't find their element.
+	 *
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Gets the number of keys found to be absent from the store without going
+	 * to it, by negative caching or the existence filter. These lookups are
+	 * counted as misses too.
+	 *
+	 * @return the negative hit count
+	 */
+	public long getNegativeHitCount() {
+		return negativeHits.sum();
+	}
+
+	/**
+	 * Gets the number of lookups.
+	 *
+	 * @return the request count
+	 */
+	public long getRequestCount() {
+		return getHitCount() + getMissCount();
+	}
+
+	/**
+	 * Gets the fraction of the lookups which found their element.
+	 *
+	 * @return the hit rate, between 0 and 1, or 0 if there was no lookup
+	 */
+	public double getHitRate() {
+		long hitCount = getHitCount();
+		long requestCount = hitCount + getMissCount();
+		return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+	}
+
+	/**
+	 * Gets the number of values the compression was tried on, those of at
+	 * least the compression threshold.
+	 *
+	 * @return the compression count
+	 */
+	public long getCompressionCount() {
+		return compressions.sum();
+	}
+
+	/**
+	 * Gets the ratio of the size of the values the compression was tried on
+	 * to the size they are stored in.
+	 *
+	 * @return the compression ratio, 1 or more, or 1 if nothing was compressed
+	 */
+	public double getCompressionRatio() {
+		long stored = compressedBytes.sum();
+		return stored == 0 ? 1 : (double) uncompressedBytes.sum() / stored;
+	}
+
+	/**
+	 * Gets the time spent compressing values.
+	 *
+	 * @return the compression time(in nanoseconds)
+	 */
+	public long getCompressionTime() {
+		return compressionTime.sum();
+	}
+
+	/**
+	 * Gets the number of values decompressed, one per read of a compressed
+	 * value.
+	 *
+	 * @return the decompression count
+	 */
+	public long getDecompressionCount() {
+		return decompressions.sum();
+	}
+
+	/**
+	 * Gets the time spent decompressing values.
+	 *
+	 * @return the decompression time(in nanoseconds)
+	 */
+	public long getDecompressionTime() {
+		return decompressionTime.sum();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "hits=" + getHitCount() + ", misses=" + getMissCount() + ", negativeHits=" + getNegativeHitCount();
+	}
+}
@@ -0,0 +1,162 @@
+package com.cache;
+
+import java.util.Set;
+
+/**
+ * The Interface CacheTransport connects the nodes of a distributed cache. It
+ * routes the point-to-point requests for the partition owned by a remote node
+ * and broadcasts the invalidation messages which keep the near-caches of the
+ * other nodes consistent.
+ * <p>
+ * Implementations are free to use any wire protocol; {@link LoopbackTransport}
+ * connects nodes living in the same JVM and is intended for testing.
+ */
+public interface CacheTransport {
+
+	/**
+	 * Return the id of the local node.
+	 *
+	 * @return the local node id
+	 */
+	public String getLocalNodeId();
+
+	/**
+	 * Return the ids of all the nodes currently in the cluster, including the
+	 * local node.
+	 *
+	 * @return the member ids
+	 */
+	public Set<String> getMembers();
+
+	/**
+	 * Return the ids of the nodes on which the given cache is bound, the only
+	 * ones to own keys of the cache. Transports whose nodes always bind the
+	 * same caches may keep this default, which returns all the members.
+	 *
+	 * @param cacheName
+	 *            the cache name
+	 * @return the member ids
+	 */
+	public default Set<String> getMembers(String cacheName) {
+		return getMembers();
+	}
+
+	/**
+	 * Bind the receiver which serves the requests for the given cache on the
+	 * local node.
+	 *
+	 * @param cacheName
+	 *            the cache name
+	 * @param receiver
+	 *            the receiver
+	 */
+	public void bind(String cacheName, Receiver receiver);
+
+	/**
+	 * Unbind the receiver of the given cache. The other nodes bound to the
+	 * cache are notified of the membership change, so that they stop routing
+	 * keys of the cache to the local node.
+	 *
+	 * @param cacheName
+	 *            the cache name
+	 */
+	public void unbind(String cacheName);
+
+	/**
+	 * Retrieve an element from the partition owned by a node.
+	 *
+	 * @param nodeId
+	 *            the owning node
+	 * @param cacheName
+	 *            the cache name
+	 * @param cacheKey
+	 *            the cache key
+	 * @return the cache element, or null if absent
+	 */
+	public CacheElement<?> get(String nodeId, String cacheName, CacheKey cacheKey);
+
+	/**
+	 * Insert an element in the partition owned by a node.
+	 *
+	 * @param nodeId
+	 *            the owning node
+	 * @param cacheName
+	 *            the cache name
+	 * @param cacheElement
+	 *            the cache element
+	 */
+	public void insert(String nodeId, String cacheName, CacheElement<?> cacheElement);
+
+	/**
+	 * Remove an element from the partition owned by a node.
+	 *
+	 * @param nodeId
+	 *            the owning node
+	 * @param cacheName
+	 *            the cache name
+	 * @param cacheKey
+	 *            the cache key
+	 * @return true, if the element was removed
+	 */
+	public boolean remove(String nodeId, String cacheName, CacheKey cacheKey);
+
+	/**
+	 * Broadcast an invalidation of the given key to every other node.
+	 *
+	 * @param cacheName
+	 *            the cache name
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	public void invalidate(String cacheName, CacheKey cacheKey);
+
+	/**
+	 * The Interface Receiver is implemented by the local node of a distributed
+	 * cache to serve the messages delivered by the transport.
+	 */
+	public interface Receiver {
+
+		/**
+		 * Serve a get request for the local partition.
+		 *
+		 * @param cacheKey
+		 *            the cache key
+		 * @return the cache element, or null if absent
+		 */
+		public CacheElement<?> onGet(CacheKey cacheKey);
+
+		/**
+		 * Serve an insert request for the local partition.
+		 *
+		 * @param cacheElement
+		 *            the cache element
+		 */
+		public void onInsert(CacheElement<?> cacheElement);
+
+		/**
+		 * Serve a remove request for the local partition.
+		 *
+		 * @param cacheKey
+		 *            the cache key
+		 * @return true, if the element was removed
+		 */
+		public boolean onRemove(CacheKey cacheKey);
+
+		/**
+		 * Drop the given key from the near-cache.
+		 *
+		 * @param cacheKey
+		 *            the cache key
+		 */
+		public void onInvalidate(CacheKey cacheKey);
+
+		/**
+		 * Called when a node binds or unbinds the cache, or joins or leaves the
+		 * cluster.
+		 *
+		 * @param members
+		 *            the ids of the nodes the cache is currently bound on
+		 */
+		public void onMembershipChange(Set<String> members);
+	}
+}
@@ -0,0 +1,252 @@
+package com.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The Class CacheWarmer fills a cache from its store before it is used, so
+ * that a restarted service doesn't serve its first requests from a cold cache.
+ * The keys to load are usually the hottest keys of the previous run, taken
+ * from a text trace of its accesses (see {@link #hottestKeys(List, int)}).
+ * <p>
+ * The keys are loaded by a bounded number of threads and at a bounded rate,
+ * so that the warm-up doesn't overwhelm the store. Only the first keys, as
+ * many as the cache holds, are considered, and those already in the cache,
+ * such as the keys restored from a backup, are not loaded again. The loaded
+ * values are not written back through the cache writer. A key the store
+ * doesn't hold is remembered by the negative cache, if any, and a key which
+ * fails to load is skipped.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+public class CacheWarmer<V> {
+
+	/** The cache. */
+	private final Cache<V> cache;
+
+	/** The loader. */
+	private final CacheLoader<V> loader;
+
+	/** The maximum number of keys loaded at the same time. */
+	private final int parallelism;
+
+	/** The time(in nanoseconds) between two loads, 0 for no limit. */
+	private final long loadInterval;
+
+	/** The time(in nanoseconds) at which the next load may start. */
+	private final AtomicLong nextLoadTime = new AtomicLong();
+
+	/** The number of elements loaded. */
+	private final AtomicInteger loadedCount = new AtomicInteger();
+
+	/** The number of keys the store doesn't hold. */
+	private final AtomicInteger absentCount = new AtomicInteger();
+
+	/** The number of keys which failed to load. */
+	private final AtomicInteger failedCount = new AtomicInteger();
+
+	/**
+	 * Instantiates a new cache warmer.
+	 *
+	 * @param cache
+	 *            the cache
+	 * @param loader
+	 *            the loader
+	 * @param parallelism
+	 *            the maximum number of keys loaded at the same time
+	 * @param loadsPerSecond
+	 *            the maximum number of keys loaded per second, 0 for no limit
+	 */
+	public CacheWarmer(Cache<V> cache, CacheLoader<V> loader, int parallelism, double loadsPerSecond) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		if (loadsPerSecond < 0) {
+			throw new IllegalArgumentException("loadsPerSecond must not be negative");
+		}
+		this.cache = cache;
+		this.loader = loader;
+		this.parallelism = parallelism;
+		this.loadInterval = loadsPerSecond == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / loadsPerSecond);
+	}
+
+	/**
+	 * Load the given keys into the cache, hottest first, and wait for all of
+	 * them to be loaded.
+	 *
+	 * @param keys
+	 *            the keys, hottest first
+	 * @return the number of elements loaded
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the loads, which are then
+	 *             cancelled
+	 */
+	public int warmUp(Collection<CacheKey> keys) throws InterruptedException {
+		Set<CacheKey> seen = new HashSet<CacheKey>();
+		for (CacheElement<V> cacheElement : cache) {
+			seen.add(cacheElement.getId());
+		}
+		List<CacheKey> keysToLoad = new ArrayList<CacheKey>();
+		int considered = 0;
+		for (CacheKey cacheKey : keys) {
+			if (considered == cache.getCacheSize()) {
+				break;
+			}
+			considered++;
+			if (seen.add(cacheKey)) {
+				keysToLoad.add(cacheKey);
+			}
+		}
+		if (keysToLoad.isEmpty()) {
+			return 0;
+		}
+
+		int loaded = loadedCount.get();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, keysToLoad.size()));
+		nextLoadTime.set(System.nanoTime());
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (CacheKey cacheKey : keysToLoad) {
+				futures.add(executor.submit(() -> {
+					load(cacheKey);
+					return null;
+				}));
+			}
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Warm-up failed", e.getCause());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return loadedCount.get() - loaded;
+	}
+
+	/**
+	 * Load a key into the cache, once the rate limit allows it.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the rate limit
+	 */
+	private void load(CacheKey cacheKey) throws InterruptedException {
+		if (loadInterval > 0) {
+			long delay = nextLoadTime.getAndAdd(loadInterval) - System.nanoTime();
+			if (delay > 0) {
+				TimeUnit.NANOSECONDS.sleep(delay);
+			}
+		}
+		V value;
+		try {
+			value = loader.load(cacheKey);
+		} catch (Exception e) {
+			failedCount.incrementAndGet();
+			System.err.println("Failed to load " + cacheKey + " while warming up " + cache.getName() + ": "
+					+ e.getMessage());
+			return;
+		}
+		if (value == null) {
+			absentCount.incrementAndGet();
+			cache.insertAbsent(cacheKey);
+			return;
+		}
+		cache.insertLoaded(new CacheElement<V>(cacheKey, value));
+		loadedCount.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of elements loaded.
+	 *
+	 * @return the loaded count
+	 */
+	public int getLoadedCount() {
+		return loadedCount.get();
+	}
+
+	/**
+	 * Gets the number of keys the store doesn't hold.
+	 *
+	 * @return the absent count
+	 */
+	public int getAbsentCount() {
+		return absentCount.get();
+	}
+
+	/**
+	 * Gets the number of keys which failed to load.
+	 *
+	 * @return the failed count
+	 */
+	public int getFailedCount() {
+		return failedCount.get();
+	}
+
+	/**
+	 * Return the most frequently accessed keys of a trace, the most frequent
+	 * first. A trace recorded by a {@link TraceRecorder} during the previous
+	 * run reads back as plain string keys, so only a {@link TraceFormat#TEXT}
+	 * trace of plain keys gives the keys the application looks up. Use
+	 * {@link #hottestKeys(List, int, Function)} to rebuild composite keys. A
+	 * {@link TraceFormat#BINARY} trace holds key hashes only, and cannot be
+	 * used to warm up a cache.
+	 *
+	 * @param trace
+	 *            the accessed keys
+	 * @param limit
+	 *            the maximum number of keys returned
+	 * @return the hottest keys
+	 */
+	public static List<CacheKey> hottestKeys(List<CacheKey> trace, int limit) {
+		Map<CacheKey, Integer> frequencies = new LinkedHashMap<CacheKey, Integer>();
+		for (CacheKey cacheKey : trace) {
+			frequencies.merge(cacheKey, 1, Integer::sum);
+		}
+		return frequencies.entrySet().stream()
+				.sorted(Map.Entry.<CacheKey, Integer> comparingByValue().reversed()).limit(limit)
+				.map(Map.Entry::getKey).collect(Collectors.toList());
+	}
+
+	/**
+	 * Return the most frequently accessed keys of a text trace, the most
+	 * frequent first, rebuilt from their recorded string form, such as
+	 * "tenant:42" for {@code CacheKey.of("tenant", 42L)}.
+	 *
+	 * @param trace
+	 *            the accessed keys, read from a {@link TraceFormat#TEXT} trace
+	 * @param limit
+	 *            the maximum number of keys returned
+	 * @param keyMapper
+	 *            the function rebuilding a key from its string form, returning
+	 *            null for a key to skip
+	 * @return the hottest keys
+	 */
+	public static List<CacheKey> hottestKeys(List<CacheKey> trace, int limit, Function<String, CacheKey> keyMapper) {
+		List<CacheKey> keys = new ArrayList<CacheKey>();
+		for (CacheKey cacheKey : hottestKeys(trace, limit)) {
+			CacheKey key = keyMapper.apply(cacheKey.getKey());
+			if (key != null) {
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+}
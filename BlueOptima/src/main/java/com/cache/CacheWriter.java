@@ -0,0 +1,70 @@
+package com.cache;
+
+import java.util.Collection;
+
+/**
+ * The Interface CacheWriter writes the changes made to a cache to the store it
+ * is caching, such as a database. Once set on a cache, the writer is called
+ * synchronously by {@link Cache#insert(CacheElement)} and
+ * {@link Cache#remove(CacheKey)} before the cache itself is changed, so that
+ * the cache is left unchanged if the writer throws. The elements evicted or
+ * expired from the cache are not deleted from the store.
+ * <p>
+ * To write behind rather than through, wrap the writer in a
+ * {@link WriteBehindWriter}.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+public interface CacheWriter<V> {
+
+	/**
+	 * Write an element inserted in the cache to the store.
+	 *
+	 * @param cacheElement
+	 *            the cache element
+	 */
+	public void write(CacheElement<V> cacheElement);
+
+	/**
+	 * Delete the element removed from the cache from the store.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	public void delete(CacheKey cacheKey);
+
+	/**
+	 * Write several elements to the store. Stores which support batch updates
+	 * should override this method, which writes the elements one by one.
+	 *
+	 * @param cacheElements
+	 *            the cache elements
+	 */
+	public default void writeAll(Collection<CacheElement<V>> cacheElements) {
+		for (CacheElement<V> cacheElement : cacheElements) {
+			write(cacheElement);
+		}
+	}
+
+	/**
+	 * Delete several elements from the store. Stores which support batch
+	 * updates should override this method, which deletes the elements one by
+	 * one.
+	 *
+	 * @param cacheKeys
+	 *            the cache keys
+	 */
+	public default void deleteAll(Collection<CacheKey> cacheKeys) {
+		for (CacheKey cacheKey : cacheKeys) {
+			delete(cacheKey);
+		}
+	}
+
+	/**
+	 * Called when the cache using the writer is closed, so that the writer
+	 * can write the changes it has held back.
+	 */
+	public default void close() {
+	}
+}
@@ -0,0 +1,368 @@
+package com.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * The Class ConcurrentLRUCache is a cache with the same LRU (Least recently
+ * used) purging mechanism as {@link LRUCache}, built for a large number of
+ * concurrent readers.
+ * <p>
+ * The elements are kept in a {@link ConcurrentHashMap}, so that a lookup never
+ * takes a lock. As every lookup changes the LRU order, the accessed elements
+ * are recorded in a small lossy ring buffer instead, and the buffer is replayed
+ * against the eviction order by whichever thread next manages to take the
+ * eviction lock. The insertions and deletions take the eviction lock, which is
+ * a {@link ReentrantLock} so that virtual threads waiting for it do not pin
+ * their carrier thread. Under heavy load a few accesses may be dropped from the
+ * buffer, which makes the eviction order an approximation of the exact LRU
+ * order.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+public class ConcurrentLRUCache<V> extends Cache<V> {
+
+	/** The Constant DEFAULT_CACHE_SIZE. */
+	private static final int DEFAULT_CACHE_SIZE = 1000;
+
+	/** The Constant DEFAULT_TIME_TO_LIVE.(in minutes) */
+	private static final int DEFAULT_TIME_TO_LIVE = 2;
+
+	/** The Constant READ_BUFFER_SIZE, must be a power of two. */
+	private static final int READ_BUFFER_SIZE = 128;
+
+	/** The Constant READ_BUFFER_MASK. */
+	private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+	/** The number of reads after which a drain of the read buffer is tried. */
+	private static final int DRAIN_THRESHOLD_MASK = 31;
+
+	/** The lock guarding the eviction order. */
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	/** The elements ordered by expiration time, guarded by the eviction lock. */
+	private final ExpiryIndex<V> expiryIndex = new ExpiryIndex<V>();
+
+	/** The elements in LRU order, guarded by the eviction lock. */
+	private final LinkedHashMap<CacheKey, CacheElement<V>> evictionOrder;
+
+	/** The recently accessed elements not yet applied to the eviction order. */
+	private final AtomicReferenceArray<CacheElement<V>> readBuffer = new AtomicReferenceArray<CacheElement<V>>(
+			READ_BUFFER_SIZE);
+
+	/** The number of reads recorded in the read buffer. */
+	private final AtomicLong readBufferWrites = new AtomicLong();
+
+	/** The number of reads applied to the eviction order, guarded by the lock. */
+	private long readBufferReads;
+
+	/**
+	 * Instantiates a new concurrent LRU cache.
+	 *
+	 * @param name
+	 *            the name of cache
+	 */
+	public ConcurrentLRUCache(String name) {
+		this(name, DEFAULT_CACHE_SIZE, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * Instantiates a new concurrent LRU cache.
+	 *
+	 * @param name
+	 *            the name
+	 * @param size
+	 *            the maximum number of elements allowed in this cache
+	 * @param ttl
+	 *            the maximum amount of time an elements reside in this cache
+	 */
+	public ConcurrentLRUCache(String name, int size, int ttl) {
+		cacheName = name;
+		cacheSize = size;
+		timeToLive = ttl;
+		cacheMap = new ConcurrentHashMap<CacheKey, CacheElement<V>>(cacheSize);
+		evictionOrder = new LinkedHashMap<CacheKey, CacheElement<V>>(cacheSize, 1.01f, true);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#insert(com.cache.CacheElement, boolean)
+	 */
+	@Override
+	protected void insert(CacheElement<V> cacheElement, boolean writeThrough) {
+		traceInsert(cacheElement.getId());
+		if (writeThrough) {
+			writeThrough(cacheElement);
+		}
+		recordPresent(cacheElement.getId());
+		applyExpiry(cacheElement);
+		holdValue(cacheElement);
+		evictionLock.lock();
+		try {
+			drainReadBuffer();
+			removeCollected();
+			cacheMap.put(cacheElement.getId(), cacheElement);
+			CacheElement<V> previous = evictionOrder.put(cacheElement.getId(), cacheElement);
+			if (previous != null) {
+				expiryIndex.remove(previous);
+			}
+			expiryIndex.schedule(cacheElement);
+			recordInsert(cacheElement, previous);
+			evict();
+		} finally {
+			unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#get(com.cache.CacheKey)
+	 */
+	@Override
+	public CacheElement<V> get(CacheKey cachekey) {
+		traceGet(cachekey);
+		CacheElement<V> cacheElement = cacheMap.get(cachekey);
+		if (cacheElement == null) {
+			stats.recordLookup(false);
+			return null;
+		}
+		if (cacheElement.isExpired()) {
+			removeExpired(cacheElement);
+			stats.recordLookup(false);
+			return null;
+		}
+		recordAccess(cacheElement);
+		recordRead(cacheElement);
+		stats.recordLookup(true);
+		return cacheElement;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#remove(com.cache.CacheKey)
+	 */
+	@Override
+	public boolean remove(CacheKey cacheKey) {
+		deleteThrough(cacheKey);
+		evictionLock.lock();
+		try {
+			CacheElement<V> cacheElement = evictionOrder.remove(cacheKey);
+			if (cacheElement != null) {
+				expiryIndex.remove(cacheElement);
+				recordRemoval(cacheElement, RemovalCause.EXPLICIT);
+			}
+			return cacheMap.remove(cacheKey) != null;
+		} finally {
+			unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#getName()
+	 */
+	@Override
+	public String getName() {
+		return cacheName;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#removeAllExpired()
+	 */
+	@Override
+	public void removeAllExpired() {
+		if (cacheMap.isEmpty()) {
+			return;
+		}
+		evictionLock.lock();
+		try {
+			removeCollected();
+			for (CacheElement<V> cacheElement : expiryIndex.expire(System.currentTimeMillis())) {
+				if (cacheMap.remove(cacheElement.getId(), cacheElement)) {
+					evictionOrder.remove(cacheElement.getId(), cacheElement);
+					recordRemoval(cacheElement, RemovalCause.EXPIRED);
+				}
+			}
+		} finally {
+			unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#setCacheSize(int)
+	 */
+	@Override
+	public void setCacheSize(int size) {
+		evictionLock.lock();
+		try {
+			cacheSize = size;
+			drainReadBuffer();
+			evict();
+		} finally {
+			unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#clear()
+	 */
+	@Override
+	public void clear() {
+		evictionLock.lock();
+		try {
+			for (CacheElement<V> cacheElement : evictionOrder.values()) {
+				recordRemoval(cacheElement, RemovalCause.EXPLICIT);
+			}
+			evictionOrder.clear();
+			cacheMap.clear();
+			expiryIndex.clear();
+		} finally {
+			unlock();
+		}
+	}
+
+	/**
+	 * Return all the objects in the cache. The list is built from the
+	 * concurrent map without locking, so it reflects the cache at some point
+	 * during the call.
+	 *
+	 * @see com.cache.Cache#getValues()
+	 */
+	@Override
+	public List<CacheElement<V>> getValues() {
+		return new ArrayList<CacheElement<V>>(cacheMap.values());
+	}
+
+	/**
+	 * Return the elements in LRU order, the least recently used first.
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		evictionLock.lock();
+		try {
+			drainReadBuffer();
+			return evictionOrder.values().stream().map(e -> e.toString()).collect(Collectors.joining(","));
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Remove an element found expired by a lookup, unless it has been replaced
+	 * in the meantime.
+	 *
+	 * @param cacheElement
+	 *            the expired element
+	 */
+	private void removeExpired(CacheElement<V> cacheElement) {
+		evictionLock.lock();
+		try {
+			if (cacheMap.remove(cacheElement.getId(), cacheElement)) {
+				evictionOrder.remove(cacheElement.getId());
+				expiryIndex.remove(cacheElement);
+				recordRemoval(cacheElement, RemovalCause.EXPIRED);
+			}
+		} finally {
+			unlock();
+		}
+	}
+
+	/**
+	 * Remove the elements whose value has been reclaimed by the garbage
+	 * collector. Must be called while holding the eviction lock.
+	 */
+	private void removeCollected() {
+		for (CacheElement<V> cacheElement : pollCollected()) {
+			if (cacheMap.remove(cacheElement.getId(), cacheElement)) {
+				evictionOrder.remove(cacheElement.getId());
+				expiryIndex.remove(cacheElement);
+				recordRemoval(cacheElement, RemovalCause.COLLECTED);
+			}
+		}
+	}
+
+	/**
+	 * Record an access in the read buffer, and every few reads try to apply
+	 * the buffer to the eviction order if no other thread holds the lock.
+	 *
+	 * @param cacheElement
+	 *            the accessed element
+	 */
+	private void recordRead(CacheElement<V> cacheElement) {
+		long index = readBufferWrites.getAndIncrement();
+		readBuffer.lazySet((int) (index & READ_BUFFER_MASK), cacheElement);
+		if ((index & DRAIN_THRESHOLD_MASK) == DRAIN_THRESHOLD_MASK && evictionLock.tryLock()) {
+			try {
+				drainReadBuffer();
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Apply the recorded accesses to the eviction order. The accesses which
+	 * have been overwritten in the ring buffer before being applied are lost.
+	 * Must be called while holding the eviction lock.
+	 */
+	private void drainReadBuffer() {
+		long writes = readBufferWrites.get();
+		for (long i = Math.max(readBufferReads, writes - READ_BUFFER_SIZE); i < writes; i++) {
+			CacheElement<V> cacheElement = readBuffer.get((int) (i & READ_BUFFER_MASK));
+			/*
+			 * A get on the access ordered map moves the key to the most
+			 * recently used end, and does nothing if it has been removed.
+			 */
+			if (cacheElement != null) {
+				evictionOrder.get(cacheElement.getId());
+			}
+		}
+		readBufferReads = writes;
+	}
+
+	/**
+	 * Evict the least recently used elements until the cache fits its size.
+	 * Must be called while holding the eviction lock.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<CacheKey, CacheElement<V>>> itr = evictionOrder.entrySet().iterator();
+		while (evictionOrder.size() > cacheSize && itr.hasNext()) {
+			Map.Entry<CacheKey, CacheElement<V>> eldest = itr.next();
+			cacheMap.remove(eldest.getKey(), eldest.getValue());
+			expiryIndex.remove(eldest.getValue());
+			itr.remove();
+			recordRemoval(eldest.getValue(), RemovalCause.SIZE);
+		}
+	}
+
+	/**
+	 * Release the eviction lock, and once the outermost hold is released
+	 * publish the events raised while holding it.
+	 */
+	private void unlock() {
+		List<CacheEvent<V>> overflow = evictionLock.getHoldCount() == 1 ? enqueueEvents() : null;
+		evictionLock.unlock();
+		dispatchEvents(overflow);
+	}
+}
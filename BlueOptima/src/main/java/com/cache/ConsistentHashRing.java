@@ -0,0 +1,219 @@
+package com.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The Class ConsistentHashRing maps keys onto a set of nodes using consistent
+ * hashing. Every node is placed on the ring a number of times (virtual nodes)
+ * so that the keys are spread evenly, and adding or removing a node only moves
+ * the keys which fall between that node and its neighbours.
+ * <p>
+ * The ring is copy-on-write: lookups read an immutable snapshot without any
+ * locking, while the (rare) membership changes rebuild the snapshot.
+ *
+ * @param <T>
+ *            the node type
+ */
+public class ConsistentHashRing<T> {
+
+	/** The Constant DEFAULT_VIRTUAL_NODES. */
+	public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+	/** The number of virtual nodes each node is placed at on the ring. */
+	private final int virtualNodes;
+
+	/** The current snapshot of the ring. */
+	private volatile TreeMap<Long, T> ring = new TreeMap<Long, T>();
+
+	/** The nodes currently on the ring. */
+	private volatile Set<T> nodes = Collections.emptySet();
+
+	/** The weight of every node on the ring. */
+	private final Map<T, Double> weights = new HashMap<T, Double>();
+
+	/**
+	 * Instantiates a new consistent hash ring.
+	 */
+	public ConsistentHashRing() {
+		this(DEFAULT_VIRTUAL_NODES);
+	}
+
+	/**
+	 * Instantiates a new consistent hash ring.
+	 *
+	 * @param virtualNodes
+	 *            the number of virtual nodes per node
+	 */
+	public ConsistentHashRing(int virtualNodes) {
+		if (virtualNodes <= 0) {
+			throw new IllegalArgumentException("virtualNodes must be positive");
+		}
+		this.virtualNodes = virtualNodes;
+	}
+
+	/**
+	 * Add a node to the ring.
+	 *
+	 * @param node
+	 *            the node
+	 */
+	public synchronized void add(T node) {
+		if (nodes.contains(node)) {
+			return;
+		}
+		add(node, 1.0);
+	}
+
+	/**
+	 * Add a node to the ring with the given weight, or change the weight of a
+	 * node already on the ring. A node with weight 2.0 is placed at twice as
+	 * many positions as a node with weight 1.0 and therefore owns about twice
+	 * as many keys. Changing the weight only moves the keys of the positions
+	 * which are added or dropped.
+	 *
+	 * @param node
+	 *            the node
+	 * @param weight
+	 *            the relative weight of the node
+	 */
+	public synchronized void add(T node, double weight) {
+		if (weight <= 0) {
+			throw new IllegalArgumentException("weight must be positive");
+		}
+		int oldCount = positions(weights.get(node));
+		int newCount = positions(weight);
+		TreeMap<Long, T> newRing = new TreeMap<Long, T>(ring);
+		for (int i = newCount; i < oldCount; i++) {
+			newRing.remove(hash(node + "#" + i));
+		}
+		for (int i = oldCount; i < newCount; i++) {
+			newRing.put(hash(node + "#" + i), node);
+		}
+		Set<T> newNodes = new LinkedHashSet<T>(nodes);
+		newNodes.add(node);
+		weights.put(node, weight);
+		ring = newRing;
+		nodes = Collections.unmodifiableSet(newNodes);
+	}
+
+	/**
+	 * Remove a node from the ring.
+	 *
+	 * @param node
+	 *            the node
+	 */
+	public synchronized void remove(T node) {
+		if (!nodes.contains(node)) {
+			return;
+		}
+		TreeMap<Long, T> newRing = new TreeMap<Long, T>(ring);
+		newRing.values().removeIf(n -> n.equals(node));
+		Set<T> newNodes = new LinkedHashSet<T>(nodes);
+		newNodes.remove(node);
+		weights.remove(node);
+		ring = newRing;
+		nodes = Collections.unmodifiableSet(newNodes);
+	}
+
+	/**
+	 * Return the node which owns the given key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the owning node, or null if the ring is empty
+	 */
+	public T get(Object key) {
+		TreeMap<Long, T> current = ring;
+		if (current.isEmpty()) {
+			return null;
+		}
+		long h = mix(key.hashCode());
+		Map.Entry<Long, T> entry = current.ceilingEntry(h);
+		if (entry == null) {
+			entry = current.firstEntry();
+		}
+		return entry.getValue();
+	}
+
+	/**
+	 * Return the nodes on the ring.
+	 *
+	 * @return the nodes
+	 */
+	public Set<T> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Return the weight of a node.
+	 *
+	 * @param node
+	 *            the node
+	 * @return the weight, or 0 if the node is not on the ring
+	 */
+	public synchronized double getWeight(T node) {
+		Double weight = weights.get(node);
+		return weight == null ? 0 : weight;
+	}
+
+	/**
+	 * Check whether the ring has no nodes.
+	 *
+	 * @return true, if empty
+	 */
+	public boolean isEmpty() {
+		return nodes.isEmpty();
+	}
+
+	/**
+	 * Return the number of positions a node of the given weight occupies.
+	 *
+	 * @param weight
+	 *            the weight, or null for a node not on the ring
+	 * @return the number of virtual nodes
+	 */
+	private int positions(Double weight) {
+		return weight == null ? 0 : Math.max(1, (int) Math.round(virtualNodes * weight));
+	}
+
+	/**
+	 * Hash the virtual node label onto the ring using FNV-1a followed by a
+	 * 64-bit finalizer, which spreads similar labels ("node#1", "node#2")
+	 * well.
+	 *
+	 * @param label
+	 *            the virtual node label
+	 * @return the ring position
+	 */
+	static long hash(String label) {
+		long h = 0xcbf29ce484222325L;
+		for (byte b : label.getBytes(StandardCharsets.UTF_8)) {
+			h ^= b;
+			h *= 0x100000001b3L;
+		}
+		return mix(h);
+	}
+
+	/**
+	 * The MurmurHash3 64-bit finalizer, used to spread the key hash codes
+	 * across the whole ring.
+	 *
+	 * @param h
+	 *            the hash
+	 * @return the mixed hash
+	 */
+	static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,96 @@
+package com.cache;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The Class DeflateCodec compresses values with the Deflate algorithm of the
+ * JDK. The compressed bytes start with the length of the original bytes, so
+ * that they are restored into an array of the right size at once.
+ * <p>
+ * A deflater holds native memory, so one is created for every call and
+ * released right after, rather than kept per thread, which would hold the
+ * memory of every virtual thread that ever inserted in the cache.
+ */
+public class DeflateCodec implements ValueCodec {
+
+	/** The compression level. */
+	private final int level;
+
+	/**
+	 * Instantiates a new deflate codec favouring speed over compression, as
+	 * cache values are compressed on the path of every insertion.
+	 */
+	public DeflateCodec() {
+		this(Deflater.BEST_SPEED);
+	}
+
+	/**
+	 * Instantiates a new deflate codec.
+	 *
+	 * @param level
+	 *            the compression level, from 1 (fastest) to 9 (smallest)
+	 */
+	public DeflateCodec(int level) {
+		this.level = level;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.ValueCodec#encode(byte[])
+	 */
+	@Override
+	public byte[] encode(byte[] data) {
+		Deflater deflater = new Deflater(level);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] buffer = new byte[4 + data.length + data.length / 1000 + 64];
+			buffer[0] = (byte) (data.length >>> 24);
+			buffer[1] = (byte) (data.length >>> 16);
+			buffer[2] = (byte) (data.length >>> 8);
+			buffer[3] = (byte) data.length;
+			int length = 4;
+			while (!deflater.finished()) {
+				if (length == buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+				length += deflater.deflate(buffer, length, buffer.length - length);
+			}
+			return Arrays.copyOf(buffer, length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.ValueCodec#decode(byte[])
+	 */
+	@Override
+	public byte[] decode(byte[] data) {
+		int length = ((data[0] & 0xff) << 24) | ((data[1] & 0xff) << 16) | ((data[2] & 0xff) << 8) | (data[3] & 0xff);
+		byte[] original = new byte[length];
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data, 4, data.length - 4);
+			int offset = 0;
+			while (offset < length && !inflater.finished()) {
+				int inflated = inflater.inflate(original, offset, length - offset);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IllegalStateException("Truncated compressed value");
+				}
+				offset += inflated;
+			}
+			return original;
+		} catch (DataFormatException e) {
+			throw new IllegalStateException("Corrupted compressed value", e);
+		} finally {
+			inflater.end();
+		}
+	}
+}
@@ -0,0 +1,430 @@
+package com.cache;
+
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Class DistributedCache is a cache whose elements are partitioned across
+ * the nodes of a cluster. Every key is owned by exactly one node, chosen by a
+ * {@link ConsistentHashRing} over the cluster members, and the owner keeps the
+ * element in its local partition. Elements read from a remote owner are kept
+ * in a small near-cache so that repeated reads are served locally; every
+ * {@link #insert(CacheElement)} and {@link #remove(CacheKey)} broadcasts an
+ * invalidation so that the other nodes drop their stale copies.
+ * <p>
+ * The nodes talk to each other through a pluggable {@link CacheTransport}. The
+ * listeners of a node receive the events of its local partition, so every
+ * change is published once, by the node owning the element. An element handed
+ * over to a new owner when the members change is announced as inserted there.
+ * The writer of the cache, if any, is called by the node where the change is
+ * made. As the key of an invalidation may just have been inserted, every node
+ * receiving it stops treating the key as absent from the store. A node whose
+ * cache is closed leaves the ring of the cache and hands its elements over to
+ * the remaining nodes.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+public class DistributedCache<V> extends Cache<V> {
+
+	/** The transport connecting the nodes. */
+	private final CacheTransport transport;
+
+	/** The elements owned by the local node. */
+	private final LRUCache<V> partition;
+
+	/** The copies of the elements owned by remote nodes. */
+	private final LRUCache<V> nearCache;
+
+	/** The ring mapping the keys to their owning node. */
+	private volatile ConsistentHashRing<String> ring;
+
+	/**
+	 * The number of invalidations received so far. A remote read only
+	 * populates the near-cache if no invalidation arrived while it was in
+	 * flight, otherwise it could cache a value which has just been replaced.
+	 */
+	private final AtomicLong invalidations = new AtomicLong();
+
+	/**
+	 * Instantiates a new distributed cache and binds it to the transport.
+	 *
+	 * @param name
+	 *            the name of the cache, identical on all the nodes
+	 * @param size
+	 *            the maximum number of elements in the local partition
+	 * @param ttl
+	 *            the maximum amount of time an element resides in this cache
+	 * @param nearCacheSize
+	 *            the maximum number of remote elements kept in the near-cache
+	 * @param transport
+	 *            the transport connecting the nodes
+	 */
+	public DistributedCache(String name, int size, int ttl, int nearCacheSize, CacheTransport transport) {
+		cacheName = name;
+		cacheSize = size;
+		timeToLive = ttl;
+		this.transport = transport;
+		partition = new LRUCache<V>(name, size, ttl);
+		nearCache = new LRUCache<V>(name, nearCacheSize, ttl);
+		partition.eventDispatcher = eventDispatcher;
+		cacheMap = partition.cacheMap;
+		ring = buildRing(transport.getMembers(name));
+		transport.bind(name, new PartitionReceiver());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#insert(com.cache.CacheElement, boolean)
+	 */
+	@Override
+	protected void insert(CacheElement<V> cacheElement, boolean writeThrough) {
+		traceInsert(cacheElement.getId());
+		if (writeThrough) {
+			writeThrough(cacheElement);
+		}
+		recordPresent(cacheElement.getId());
+		CacheKey cacheKey = cacheElement.getId();
+		String owner = ring.get(cacheKey);
+		if (isLocal(owner)) {
+			partition.insert(cacheElement);
+		} else {
+			transport.insert(owner, cacheName, cacheElement);
+		}
+		nearCache.remove(cacheKey);
+		transport.invalidate(cacheName, cacheKey);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#get(com.cache.CacheKey)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public CacheElement<V> get(CacheKey cachekey) {
+		traceGet(cachekey);
+		CacheElement<V> cacheElement = nearCache.get(cachekey);
+		if (cacheElement == null) {
+			String owner = ring.get(cachekey);
+			if (isLocal(owner)) {
+				cacheElement = partition.get(cachekey);
+			} else {
+				long seen = invalidations.get();
+				cacheElement = (CacheElement<V>) transport.get(owner, cacheName, cachekey);
+				if (cacheElement != null && invalidations.get() == seen) {
+					nearCache.insert(cacheElement);
+				}
+			}
+		}
+		stats.recordLookup(cacheElement != null);
+		return cacheElement;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#remove(com.cache.CacheKey)
+	 */
+	@Override
+	public boolean remove(CacheKey cacheKey) {
+		deleteThrough(cacheKey);
+		String owner = ring.get(cacheKey);
+		boolean isRemoved;
+		if (isLocal(owner)) {
+			isRemoved = partition.remove(cacheKey);
+		} else {
+			isRemoved = transport.remove(owner, cacheName, cacheKey);
+		}
+		nearCache.remove(cacheKey);
+		transport.invalidate(cacheName, cacheKey);
+		return isRemoved;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#removeAllExpired()
+	 */
+	@Override
+	public void removeAllExpired() {
+		partition.removeAllExpired();
+		nearCache.removeAllExpired();
+	}
+
+	/**
+	 * Remove all the elements held by the local node. The elements owned by
+	 * the other nodes are not affected.
+	 *
+	 * @see com.cache.Cache#clear()
+	 */
+	@Override
+	public void clear() {
+		partition.clear();
+		nearCache.clear();
+	}
+
+	/**
+	 * Unbind the cache from the transport, handing its elements over to the
+	 * remaining nodes, before releasing the near-cache.
+	 *
+	 * @see com.cache.Cache#close()
+	 */
+	@Override
+	public void close() {
+		detach();
+		super.close();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#getName()
+	 */
+	@Override
+	public String getName() {
+		return cacheName;
+	}
+
+	/**
+	 * Return the elements owned by the local node. The near-cache copies are
+	 * not included, so that every node backs up only its own partition.
+	 *
+	 * @see com.cache.Cache#getValues()
+	 */
+	@Override
+	public List<CacheElement<V>> getValues() {
+		return partition.getValues();
+	}
+
+	/**
+	 * Return a weakly consistent spliterator over the elements of the local
+	 * partition.
+	 *
+	 * @see com.cache.Cache#spliterator()
+	 */
+	@Override
+	public Spliterator<CacheElement<V>> spliterator() {
+		return partition.spliterator();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#setExpiryMode(com.cache.ExpiryMode)
+	 */
+	@Override
+	public void setExpiryMode(ExpiryMode expiryMode) {
+		super.setExpiryMode(expiryMode);
+		partition.setExpiryMode(expiryMode);
+		nearCache.setExpiryMode(expiryMode);
+	}
+
+	/**
+	 * Change the maximum number of elements in the local partition.
+	 *
+	 * @see com.cache.Cache#setCacheSize(int)
+	 */
+	@Override
+	public void setCacheSize(int size) {
+		cacheSize = size;
+		partition.setCacheSize(size);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#setTimeToLive(int)
+	 */
+	@Override
+	public void setTimeToLive(int timeToLive) {
+		super.setTimeToLive(timeToLive);
+		partition.setTimeToLive(timeToLive);
+		nearCache.setTimeToLive(timeToLive);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#setValueCompression(com.cache.ValueCodec, int)
+	 */
+	@Override
+	public void setValueCompression(ValueCodec codec, int threshold) {
+		super.setValueCompression(codec, threshold);
+		partition.valueCompressor = valueCompressor;
+		nearCache.valueCompressor = valueCompressor;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#setValueStrength(com.cache.ValueStrength)
+	 */
+	@Override
+	public void setValueStrength(ValueStrength valueStrength) {
+		super.setValueStrength(valueStrength);
+		partition.setValueStrength(valueStrength);
+		nearCache.setValueStrength(valueStrength);
+	}
+
+	/**
+	 * Sets the expiry function of the local partition and near-cache. The
+	 * same function must be set on every node.
+	 *
+	 * @see com.cache.Cache#setExpiry(com.cache.Expiry)
+	 */
+	@Override
+	public void setExpiry(Expiry<V> expiry) {
+		super.setExpiry(expiry);
+		partition.setExpiry(expiry);
+		nearCache.setExpiry(expiry);
+	}
+
+	/**
+	 * Return the node which owns the given key.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 * @return the owning node id
+	 */
+	public String getOwner(CacheKey cacheKey) {
+		return ring.get(cacheKey);
+	}
+
+	/**
+	 * Unbind this cache from the transport, so that the other nodes stop
+	 * routing keys to the local node, and hand the elements of the local
+	 * partition over to their new owners. Without any other node bound to the
+	 * cache, the elements stay in the local partition.
+	 */
+	public void detach() {
+		transport.unbind(cacheName);
+		Set<String> members = new TreeSet<String>(transport.getMembers(cacheName));
+		members.remove(transport.getLocalNodeId());
+		if (members.isEmpty()) {
+			return;
+		}
+		ConsistentHashRing<String> newRing = buildRing(members);
+		ring = newRing;
+		invalidations.incrementAndGet();
+		nearCache.clear();
+		for (CacheElement<V> cacheElement : partition.getValues()) {
+			transport.insert(newRing.get(cacheElement.getId()), cacheName, cacheElement);
+			partition.transferOut(cacheElement.getId());
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return partition.toString();
+	}
+
+	/**
+	 * Check whether the given node is the local node.
+	 *
+	 * @param nodeId
+	 *            the node id
+	 * @return true, if local
+	 */
+	private boolean isLocal(String nodeId) {
+		return nodeId == null || nodeId.equals(transport.getLocalNodeId());
+	}
+
+	/**
+	 * Build the ring for the given members.
+	 *
+	 * @param members
+	 *            the member ids
+	 * @return the ring
+	 */
+	private static ConsistentHashRing<String> buildRing(Set<String> members) {
+		ConsistentHashRing<String> newRing = new ConsistentHashRing<String>();
+		for (String member : members) {
+			newRing.add(member);
+		}
+		return newRing;
+	}
+
+	/**
+	 * The Class PartitionReceiver serves the requests of the other nodes from
+	 * the local partition.
+	 */
+	private class PartitionReceiver implements CacheTransport.Receiver {
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see com.cache.CacheTransport.Receiver#onGet(com.cache.CacheKey)
+		 */
+		@Override
+		public CacheElement<?> onGet(CacheKey cacheKey) {
+			return partition.get(cacheKey);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see
+		 * com.cache.CacheTransport.Receiver#onInsert(com.cache.CacheElement)
+		 */
+		@Override
+		@SuppressWarnings("unchecked")
+		public void onInsert(CacheElement<?> cacheElement) {
+			partition.insert((CacheElement<V>) cacheElement);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see com.cache.CacheTransport.Receiver#onRemove(com.cache.CacheKey)
+		 */
+		@Override
+		public boolean onRemove(CacheKey cacheKey) {
+			return partition.remove(cacheKey);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see
+		 * com.cache.CacheTransport.Receiver#onInvalidate(com.cache.CacheKey)
+		 */
+		@Override
+		public void onInvalidate(CacheKey cacheKey) {
+			invalidations.incrementAndGet();
+			nearCache.remove(cacheKey);
+			recordPresent(cacheKey);
+		}
+
+		/**
+		 * Rebuild the ring and hand the elements which are now owned by
+		 * another node over to their new owner. The near-cache is dropped as
+		 * the ownership of its elements may have moved.
+		 *
+		 * @see com.cache.CacheTransport.Receiver#onMembershipChange(java.util.Set)
+		 */
+		@Override
+		public void onMembershipChange(Set<String> members) {
+			ConsistentHashRing<String> newRing = buildRing(members);
+			ring = newRing;
+			invalidations.incrementAndGet();
+			nearCache.clear();
+			for (CacheElement<V> cacheElement : partition.getValues()) {
+				String owner = newRing.get(cacheElement.getId());
+				if (!isLocal(owner)) {
+					transport.insert(owner, cacheName, cacheElement);
+					partition.transferOut(cacheElement.getId());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.cache;
+
+/**
+ * The Interface Expiry computes the time to live of every element inserted in
+ * a cache, so that the elements of one cache may live for different durations
+ * depending on their value.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+@FunctionalInterface
+public interface Expiry<V> {
+
+	/**
+	 * Return the time to live of an element being inserted in the cache.
+	 *
+	 * @param cacheKey
+	 *            the key of the element
+	 * @param value
+	 *            the value of the element
+	 * @return the time to live(in milliseconds), 0 for an element which lives
+	 *         indefinitely
+	 */
+	public long timeToLive(CacheKey cacheKey, V value);
+}
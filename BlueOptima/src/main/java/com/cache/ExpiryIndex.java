@@ -0,0 +1,116 @@
+package com.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The Class ExpiryIndex keeps the elements of a cache ordered by expiration
+ * time, so that the expired elements are found without scanning the whole
+ * cache even when the elements have different times to live.
+ * <p>
+ * The elements are grouped in buckets of one second. An element expiring after
+ * access may have been accessed since it was scheduled, in which case its
+ * bucket is reached before the element is actually expired and it is simply
+ * moved to the bucket of its new expiration time. Accessing an element
+ * therefore never touches the index.
+ * <p>
+ * The cache must remove an element from the index whenever it stops holding
+ * it. The bucket of every element is kept by the index rather than by the
+ * element, as an element may be held by several caches, each scheduling it at
+ * its own expiration time. The index is not thread safe, the cache must guard it with its own lock.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+class ExpiryIndex<V> {
+
+	/** The Constant BUCKET_MILLIS. */
+	private static final long BUCKET_MILLIS = 1000;
+
+	/** The buckets of elements, by expiration time divided by the bucket size. */
+	private final TreeMap<Long, Set<CacheElement<V>>> buckets = new TreeMap<Long, Set<CacheElement<V>>>();
+
+	/** The bucket of every element scheduled. */
+	private final Map<CacheElement<V>, Long> elementBuckets = new IdentityHashMap<CacheElement<V>, Long>();
+
+	/**
+	 * Schedule an element for expiration. Elements which live indefinitely are
+	 * not indexed.
+	 *
+	 * @param cacheElement
+	 *            the cache element
+	 */
+	void schedule(CacheElement<V> cacheElement) {
+		long expirationTime = cacheElement.getExpirationTime();
+		if (expirationTime == Long.MAX_VALUE) {
+			return;
+		}
+		long bucket = expirationTime / BUCKET_MILLIS;
+		Set<CacheElement<V>> elements = buckets.get(bucket);
+		if (elements == null) {
+			elements = Collections.newSetFromMap(new IdentityHashMap<CacheElement<V>, Boolean>());
+			buckets.put(bucket, elements);
+		}
+		elements.add(cacheElement);
+		elementBuckets.put(cacheElement, bucket);
+	}
+
+	/**
+	 * Remove an element from the index.
+	 *
+	 * @param cacheElement
+	 *            the cache element
+	 */
+	void remove(CacheElement<V> cacheElement) {
+		Long bucket = elementBuckets.remove(cacheElement);
+		if (bucket == null) {
+			return;
+		}
+		Set<CacheElement<V>> elements = buckets.get(bucket);
+		if (elements != null && elements.remove(cacheElement) && elements.isEmpty()) {
+			buckets.remove(bucket);
+		}
+	}
+
+	/**
+	 * Remove from the index and return the elements which have expired. The
+	 * elements of the due buckets which have been accessed since they were
+	 * scheduled are scheduled again.
+	 *
+	 * @param now
+	 *            the current time(in milliseconds since the epoch)
+	 * @return the expired elements
+	 */
+	List<CacheElement<V>> expire(long now) {
+		List<CacheElement<V>> expired = new ArrayList<CacheElement<V>>();
+		List<CacheElement<V>> rescheduled = new ArrayList<CacheElement<V>>();
+		long dueBucket = now / BUCKET_MILLIS;
+		while (!buckets.isEmpty() && buckets.firstKey() <= dueBucket) {
+			for (CacheElement<V> cacheElement : buckets.pollFirstEntry().getValue()) {
+				elementBuckets.remove(cacheElement);
+				if (cacheElement.isExpired(now)) {
+					expired.add(cacheElement);
+				} else {
+					rescheduled.add(cacheElement);
+				}
+			}
+		}
+		for (CacheElement<V> cacheElement : rescheduled) {
+			schedule(cacheElement);
+		}
+		return expired;
+	}
+
+	/**
+	 * Remove all the elements from the index.
+	 */
+	void clear() {
+		buckets.clear();
+		elementBuckets.clear();
+	}
+}
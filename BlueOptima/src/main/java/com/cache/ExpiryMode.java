@@ -0,0 +1,14 @@
+package com.cache;
+
+/**
+ * The Enum ExpiryMode defines from which point in time the time to live of a
+ * cache element is measured.
+ */
+public enum ExpiryMode {
+
+	/** The time to live is measured since the element was inserted. */
+	AFTER_WRITE,
+
+	/** The time to live is measured since the element was last accessed. */
+	AFTER_ACCESS
+}
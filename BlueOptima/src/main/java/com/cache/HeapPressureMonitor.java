@@ -0,0 +1,208 @@
+package com.cache;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+/**
+ * The Class HeapPressureMonitor watches the occupancy of the old generation of
+ * the heap and tells its listener when it crosses a configured level, so that
+ * the caches give memory back before the JVM spends all its time collecting
+ * garbage. An instance of this class runs as a daemon thread which checks the
+ * occupancy after the last collection periodically, and immediately when the
+ * JVM reports that the usage threshold of the pool has been exceeded.
+ * <p>
+ * Once under pressure, the listener is told again on every check until the
+ * occupancy drops back below the threshold by a margin, at which point it is
+ * told that the pressure has been relieved.
+ */
+public class HeapPressureMonitor extends Thread implements NotificationListener {
+
+	/** The margin below the threshold at which the pressure is relieved. */
+	private static final double RELIEF_MARGIN = 0.1;
+
+	/** The old generation pool. */
+	private final MemoryPoolMXBean pool;
+
+	/** The fraction of the pool above which the heap is under pressure. */
+	private final double threshold;
+
+	/** The time interval(in seconds) between two checks. */
+	private final int checkInterval;
+
+	/** The listener. */
+	private final Listener listener;
+
+	/** Released when the JVM reports the threshold has been exceeded. */
+	private final Semaphore wakeUp = new Semaphore(0);
+
+	/** The flag to indicate whether the heap is under pressure. */
+	private boolean underPressure;
+
+	/**
+	 * Instantiates a new heap pressure monitor.
+	 *
+	 * @param threshold
+	 *            the fraction of the old generation above which the heap is
+	 *            under pressure, between 0 and 1
+	 * @param checkInterval
+	 *            the time interval(in seconds) between two checks
+	 * @param listener
+	 *            the listener
+	 */
+	public HeapPressureMonitor(double threshold, int checkInterval, Listener listener) {
+		if (threshold <= 0 || threshold >= 1) {
+			throw new IllegalArgumentException("threshold must be between 0 and 1");
+		}
+		this.threshold = threshold;
+		this.checkInterval = checkInterval;
+		this.listener = listener;
+		this.pool = findOldGeneration();
+		setDaemon(true);
+		setName("Heap Pressure Monitor");
+
+		if (pool != null && pool.getUsage().getMax() > 0) {
+			long level = (long) (pool.getUsage().getMax() * threshold);
+			if (pool.isUsageThresholdSupported()) {
+				pool.setUsageThreshold(level);
+			}
+			if (pool.isCollectionUsageThresholdSupported()) {
+				pool.setCollectionUsageThreshold(level);
+			}
+			((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(this, null, null);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Thread#run()
+	 */
+	@Override
+	public void run() {
+		while (!isInterrupted()) {
+			check();
+			try {
+				wakeUp.tryAcquire(checkInterval, TimeUnit.SECONDS);
+				wakeUp.drainPermits();
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see javax.management.NotificationListener#handleNotification(javax.
+	 * management.Notification, java.lang.Object)
+	 */
+	@Override
+	public void handleNotification(Notification notification, Object handback) {
+		String type = notification.getType();
+		if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type)
+				|| MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)) {
+			wakeUp.release();
+		}
+	}
+
+	/**
+	 * Stop monitoring.
+	 */
+	public void shutdown() {
+		try {
+			((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(this);
+		} catch (ListenerNotFoundException e) {
+			/*
+			 * No pool to monitor, the listener was never added
+			 */
+		}
+		interrupt();
+	}
+
+	/**
+	 * Return the occupancy of the old generation. The usage after the last
+	 * collection is used when available, as it measures the live data rather
+	 * than the garbage not collected yet.
+	 *
+	 * @return the occupancy, between 0 and 1
+	 */
+	public double getOccupancy() {
+		if (pool == null) {
+			return 0;
+		}
+		MemoryUsage usage = pool.getCollectionUsage();
+		if (usage == null || usage.getUsed() == 0) {
+			usage = pool.getUsage();
+		}
+		return usage.getMax() > 0 ? (double) usage.getUsed() / usage.getMax() : 0;
+	}
+
+	/**
+	 * Compare the occupancy with the threshold and notify the listener.
+	 */
+	private void check() {
+		double occupancy = getOccupancy();
+		if (occupancy >= threshold) {
+			underPressure = true;
+			listener.onHeapPressure(occupancy);
+		} else if (underPressure && occupancy < threshold - RELIEF_MARGIN) {
+			underPressure = false;
+			listener.onHeapRelief(occupancy);
+		}
+	}
+
+	/**
+	 * Find the heap pool holding the long lived objects: the one named after
+	 * the old or tenured generation, else the largest heap pool.
+	 *
+	 * @return the pool, or null if the JVM doesn't report any heap pool
+	 */
+	private static MemoryPoolMXBean findOldGeneration() {
+		MemoryPoolMXBean largest = null;
+		for (MemoryPoolMXBean candidate : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (candidate.getType() != MemoryType.HEAP) {
+				continue;
+			}
+			String name = candidate.getName();
+			if (name.contains("Old") || name.contains("Tenured")) {
+				return candidate;
+			}
+			if (largest == null || candidate.getUsage().getMax() > largest.getUsage().getMax()) {
+				largest = candidate;
+			}
+		}
+		return largest;
+	}
+
+	/**
+	 * The listener interface for receiving heap pressure events.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called on every check while the occupancy is above the threshold.
+		 *
+		 * @param occupancy
+		 *            the occupancy of the old generation, between 0 and 1
+		 */
+		public void onHeapPressure(double occupancy);
+
+		/**
+		 * Called once the occupancy has dropped back below the threshold.
+		 *
+		 * @param occupancy
+		 *            the occupancy of the old generation, between 0 and 1
+		 */
+		public void onHeapRelief(double occupancy);
+	}
+}
@@ -0,0 +1,72 @@
+package com.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Class KeyInterner shares one instance of every frequently used key, so
+ * that the keys kept by the call sites don't each hold their own copy and the
+ * lookups of an interned key find it in the cache by identity before
+ * comparing its contents.
+ * <p>
+ * The interner holds at most the given number of keys; once full, new keys
+ * are returned as they are. It is meant for a bounded set of hot keys, such
+ * as the keys of reference data, rather than for every key of a cache.
+ */
+public class KeyInterner {
+
+	/** The maximum number of keys. */
+	private final int maxSize;
+
+	/** The interned keys. */
+	private final ConcurrentHashMap<CacheKey, CacheKey> keys;
+
+	/**
+	 * Instantiates a new key interner.
+	 *
+	 * @param maxSize
+	 *            the maximum number of keys
+	 */
+	public KeyInterner(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		this.maxSize = maxSize;
+		this.keys = new ConcurrentHashMap<CacheKey, CacheKey>(Math.min(maxSize, 1024));
+	}
+
+	/**
+	 * Return the shared instance of a key, the key itself if it is the first
+	 * one seen or if the interner is full.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 * @return the shared key
+	 */
+	public CacheKey intern(CacheKey cacheKey) {
+		CacheKey interned = keys.get(cacheKey);
+		if (interned != null) {
+			return interned;
+		}
+		if (keys.size() >= maxSize) {
+			return cacheKey;
+		}
+		interned = keys.putIfAbsent(cacheKey, cacheKey);
+		return interned == null ? cacheKey : interned;
+	}
+
+	/**
+	 * Gets the number of interned keys.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return keys.size();
+	}
+
+	/**
+	 * Forget all the interned keys.
+	 */
+	public void clear() {
+		keys.clear();
+	}
+}
@@ -1,10 +1,15 @@
 package com.cache;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -12,6 +17,11 @@ import java.util.stream.Collectors;
  * represents a cache which uses LRU (Least recently used) purging mechanism to
  * take the decision of identifying which element should be removed if the
  * storage limit exceeds.
+ * <p>
+ * Besides the LRU order kept by the map, the elements are linked in the order
+ * they were inserted. This scan order is what {@link #spliterator()} follows,
+ * a page at a time, so that a traversal resumes where it stopped whatever the
+ * accesses in between did to the LRU order.
  *
  * @param <V>
  *            the value type of CacheElement
@@ -24,11 +34,36 @@ public class LRUCache<V> extends Cache<V> {
 	/** The Constant DEFAULT_TIME_TO_LIVE.(in minutes) */
 	private static final int DEFAULT_TIME_TO_LIVE = 2;
 
+	/** The number of nodes of the scan order read under the lock at a time. */
+	private static final int SCAN_PAGE_SIZE = 256;
+
 	/**
-	 * The lock object to use for synchronizing the insertion, deletion and
-	 * retrieval of elements.
+	 * The lock to use for synchronizing the insertion, deletion and retrieval
+	 * of elements. An explicit lock is used rather than a monitor so that a
+	 * virtual thread waiting for it unmounts from its carrier thread instead
+	 * of pinning it.
 	 */
-	private final Object lock = new Object();
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** The elements ordered by expiration time, guarded by the lock. */
+	private final ExpiryIndex<V> expiryIndex = new ExpiryIndex<V>();
+
+	/** The oldest node of the scan order, guarded by the lock. */
+	private ScanNode<V> scanHead;
+
+	/** The newest node of the scan order, guarded by the lock. */
+	private ScanNode<V> scanTail;
+
+	/**
+	 * The node of the scan order of every element, by key, guarded by the
+	 * lock. The nodes are kept by the cache rather than by the elements, as an
+	 * element may be held by several caches, such as the near-cache and a
+	 * partition of a distributed cache.
+	 */
+	private final Map<CacheKey, ScanNode<V>> scanNodes = new HashMap<CacheKey, ScanNode<V>>();
+
+	/** The sequence number of the newest node, guarded by the lock. */
+	private long scanSequence;
 
 	/**
 	 * Instantiates a new LRU cache.
@@ -62,7 +97,13 @@ public class LRUCache<V> extends Cache<V> {
 
 			@Override
 			protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheElement<V>> eldest) {
-				return size() > cacheSize;
+				if (size() > cacheSize) {
+					expiryIndex.remove(eldest.getValue());
+					unlink(eldest.getValue());
+					recordRemoval(eldest.getValue(), RemovalCause.SIZE);
+					return true;
+				}
+				return false;
 			}
 		};
 	}
@@ -70,14 +111,18 @@ public class LRUCache<V> extends Cache<V> {
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see com.cache.Cache#insert(com.cache.CacheElement)
+	 * @see com.cache.Cache#insert(com.cache.CacheElement, boolean)
 	 */
 	@Override
-	public void insert(CacheElement<V> cacheElement) {
-		synchronized (lock) {
-			cacheMap.put(cacheElement.getId(), cacheElement);
-			cacheElement.setExpiration(timeToLive);
+	protected void insert(CacheElement<V> cacheElement, boolean writeThrough) {
+		traceInsert(cacheElement.getId());
+		if (writeThrough) {
+			writeThrough(cacheElement);
 		}
+		recordPresent(cacheElement.getId());
+		applyExpiry(cacheElement);
+		holdValue(cacheElement);
+		insertElement(cacheElement, true);
 	}
 
 	/*
@@ -87,17 +132,35 @@ public class LRUCache<V> extends Cache<V> {
 	 */
 	@Override
 	public CacheElement<V> get(CacheKey cachekey) {
-		synchronized (lock) {
+		traceGet(cachekey);
+		CacheElement<V> cacheElement = lookup(cachekey);
+		stats.recordLookup(cacheElement != null);
+		return cacheElement;
+	}
+
+	/**
+	 * Look up the element with the given key, removing it if it has expired.
+	 *
+	 * @param cachekey
+	 *            the cache key
+	 * @return the cache element, or null
+	 */
+	private CacheElement<V> lookup(CacheKey cachekey) {
+		lock.lock();
+		try {
 			CacheElement<V> cacheElement = (CacheElement<V>) cacheMap.get(cachekey);
 			if (cacheElement == null) {
 				return null;
 			} else {
 				if (cacheElement.isExpired()) {
-					remove(cacheElement.getId());
+					remove(cachekey, RemovalCause.EXPIRED);
+					return null;
 				}
 			}
-			cacheElement.setExpiration(timeToLive);
+			recordAccess(cacheElement);
 			return cacheElement;
+		} finally {
+			unlock();
 		}
 	}
 
@@ -108,14 +171,8 @@ public class LRUCache<V> extends Cache<V> {
 	 */
 	@Override
 	public boolean remove(CacheKey cacheKey) {
-		synchronized (lock) {
-			boolean isRemoved = false;
-			if (cacheMap.containsKey(cacheKey)) {
-				cacheMap.remove(cacheKey);
-				isRemoved = true;
-			}
-			return isRemoved;
-		}
+		deleteThrough(cacheKey);
+		return remove(cacheKey, RemovalCause.EXPLICIT) != null;
 	}
 
 	/*
@@ -138,27 +195,375 @@ public class LRUCache<V> extends Cache<V> {
 		if (cacheMap.isEmpty()) {
 			return;
 		}
-		synchronized (lock) {
-			Set<Entry<CacheKey, CacheElement<V>>> entries = cacheMap.entrySet();
-			Iterator<Entry<CacheKey, CacheElement<V>>> itr = entries.iterator();
-			while (itr.hasNext()) {
-				Entry<CacheKey, CacheElement<V>> entry = itr.next();
-				if (entry.getValue().isExpired()) {
-					System.out.println("Evicting the entry::" + entry.getValue().getValue());
-					itr.remove();
+		lock.lock();
+		try {
+			removeCollected();
+			for (CacheElement<V> cacheElement : expiryIndex.expire(System.currentTimeMillis())) {
+				if (cacheMap.remove(cacheElement.getId(), cacheElement)) {
+					unlink(cacheElement);
+					recordRemoval(cacheElement, RemovalCause.EXPIRED);
 				}
 			}
+		} finally {
+			unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#setCacheSize(int)
+	 */
+	@Override
+	public void setCacheSize(int size) {
+		lock.lock();
+		try {
+			cacheSize = size;
+			Iterator<CacheElement<V>> itr = cacheMap.values().iterator();
+			while (cacheMap.size() > cacheSize && itr.hasNext()) {
+				CacheElement<V> eldest = itr.next();
+				expiryIndex.remove(eldest);
+				unlink(eldest);
+				itr.remove();
+				recordRemoval(eldest, RemovalCause.SIZE);
+			}
+		} finally {
+			unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#clear()
+	 */
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			for (CacheElement<V> cacheElement : cacheMap.values()) {
+				recordRemoval(cacheElement, RemovalCause.EXPLICIT);
+			}
+			for (ScanNode<V> node = scanHead; node != null; node = node.next) {
+				node.element = null;
+			}
+			scanNodes.clear();
+			scanHead = null;
+			scanTail = null;
+			cacheMap.clear();
+			expiryIndex.clear();
+		} finally {
+			unlock();
 		}
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
+	 * @see com.cache.Cache#getValues()
+	 */
+	@Override
+	public List<CacheElement<V>> getValues() {
+		lock.lock();
+		try {
+			return new ArrayList<CacheElement<V>>(cacheMap.values());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return a weakly consistent spliterator over the elements of the cache.
+	 * The elements are read in the scan order, a page at a time under the
+	 * lock, so that a traversal holds up the other threads briefly whatever
+	 * the size of the cache. Parallel streams split the traversal into
+	 * batches of elements already read.
+	 *
+	 * @see com.cache.Cache#spliterator()
+	 */
+	@Override
+	public Spliterator<CacheElement<V>> spliterator() {
+		return new PagedSpliterator();
+	}
+
+	/**
+	 * Insert an element moved from another cache, such as another shard of
+	 * the same logical cache. No insertion event is raised as the element was
+	 * already in the logical cache.
+	 *
+	 * @param cacheElement
+	 *            the cache element
+	 */
+	void transferIn(CacheElement<V> cacheElement) {
+		insertElement(cacheElement, false);
+	}
+
+	/**
+	 * Remove an element being moved to another cache, such as another shard
+	 * of the same logical cache. No removal event is raised as the element
+	 * stays in the logical cache.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 * @return the removed element, or null
+	 */
+	CacheElement<V> transferOut(CacheKey cacheKey) {
+		return remove(cacheKey, null);
+	}
+
+	/**
+	 * Insert an element whose expiration time and value holding have already
+	 * been set, so that the lock isn't held while they are, the compression of
+	 * a large value in particular.
+	 *
+	 * @param cacheElement
+	 *            the cache element
+	 * @param notify
+	 *            whether to raise an insertion event
+	 */
+	private void insertElement(CacheElement<V> cacheElement, boolean notify) {
+		lock.lock();
+		try {
+			removeCollected();
+			CacheElement<V> previous = cacheMap.put(cacheElement.getId(), cacheElement);
+			if (previous != null) {
+				expiryIndex.remove(previous);
+				unlink(previous);
+			}
+			expiryIndex.schedule(cacheElement);
+			link(cacheElement);
+			if (notify) {
+				recordInsert(cacheElement, previous);
+			}
+		} finally {
+			unlock();
+		}
+	}
+
+	/**
+	 * Remove the element with the given key.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 * @param cause
+	 *            the cause of the removal, or null to raise no removal event
+	 * @return the removed element, or null
+	 */
+	private CacheElement<V> remove(CacheKey cacheKey, RemovalCause cause) {
+		lock.lock();
+		try {
+			CacheElement<V> cacheElement = cacheMap.remove(cacheKey);
+			if (cacheElement != null) {
+				expiryIndex.remove(cacheElement);
+				unlink(cacheElement);
+				if (cause != null) {
+					recordRemoval(cacheElement, cause);
+				}
+			}
+			return cacheElement;
+		} finally {
+			unlock();
+		}
+	}
+
+	/**
+	 * Remove the elements whose value has been reclaimed by the garbage
+	 * collector. Must be called while holding the lock.
+	 */
+	private void removeCollected() {
+		for (CacheElement<V> cacheElement : pollCollected()) {
+			if (cacheMap.remove(cacheElement.getId(), cacheElement)) {
+				expiryIndex.remove(cacheElement);
+				unlink(cacheElement);
+				recordRemoval(cacheElement, RemovalCause.COLLECTED);
+			}
+		}
+	}
+
+	/**
+	 * Append an element to the scan order. Must be called while holding the
+	 * lock.
+	 *
+	 * @param cacheElement
+	 *            the inserted element
+	 */
+	private void link(CacheElement<V> cacheElement) {
+		ScanNode<V> node = new ScanNode<V>(cacheElement, ++scanSequence);
+		if (scanTail == null) {
+			scanHead = node;
+		} else {
+			scanTail.next = node;
+			node.previous = scanTail;
+		}
+		scanTail = node;
+		scanNodes.put(cacheElement.getId(), node);
+	}
+
+	/**
+	 * Remove an element from the scan order. The node keeps its link to the
+	 * next node, so that a traversal which stopped on it can still resume.
+	 * Must be called while holding the lock.
+	 *
+	 * @param cacheElement
+	 *            the removed element
+	 */
+	private void unlink(CacheElement<V> cacheElement) {
+		ScanNode<V> node = scanNodes.get(cacheElement.getId());
+		if (node == null || node.element != cacheElement) {
+			return;
+		}
+		scanNodes.remove(cacheElement.getId());
+		if (node.previous == null) {
+			scanHead = node.next;
+		} else {
+			node.previous.next = node.next;
+		}
+		if (node.next == null) {
+			scanTail = node.previous;
+		} else {
+			node.next.previous = node.previous;
+		}
+		node.previous = null;
+		node.element = null;
+	}
+
+	/**
+	 * Release the lock, and once the outermost hold is released publish the
+	 * events raised while holding it.
+	 */
+	private void unlock() {
+		List<CacheEvent<V>> overflow = lock.getHoldCount() == 1 ? enqueueEvents() : null;
+		lock.unlock();
+		dispatchEvents(overflow);
+	}
+
+	/**
+	 * Return the elements in LRU order, the least recently used first.
+	 *
 	 * @see java.lang.Object#toString()
 	 */
 	@Override
 	public String toString() {
-		return cacheMap.entrySet().stream().map(e -> e.getValue().toString()).collect(Collectors.joining(","));
+		lock.lock();
+		try {
+			return cacheMap.values().stream().map(e -> e.toString()).collect(Collectors.joining(","));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The Class ScanNode links an element of the cache in the scan order. A
+	 * node removed from the scan order keeps its link to the node which
+	 * followed it, so the links from a removed node always lead to the nodes
+	 * still in the scan order, or to the end.
+	 *
+	 * @param <V>
+	 *            the value type of CacheElement
+	 */
+	private static final class ScanNode<V> {
+
+		/** The sequence number, increasing in the scan order. */
+		final long sequence;
+
+		/** The element, null once the node has been removed. */
+		CacheElement<V> element;
+
+		/** The previous node, null for the oldest node or a removed node. */
+		ScanNode<V> previous;
+
+		/** The next node. */
+		ScanNode<V> next;
+
+		/**
+		 * Instantiates a new scan node.
+		 *
+		 * @param element
+		 *            the element
+		 * @param sequence
+		 *            the sequence number
+		 */
+		ScanNode(CacheElement<V> element, long sequence) {
+			this.element = element;
+			this.sequence = sequence;
+		}
 	}
 
+	/**
+	 * The Class PagedSpliterator reads the scan order a page at a time, under
+	 * the lock, and stops at the last node present when it read the first
+	 * page. The nodes are only ever appended, so the nodes following the last
+	 * one read are exactly those not read yet.
+	 */
+	private final class PagedSpliterator extends Spliterators.AbstractSpliterator<CacheElement<V>> {
+
+		/** The elements of the current page. */
+		private final List<CacheElement<V>> page = new ArrayList<CacheElement<V>>(SCAN_PAGE_SIZE);
+
+		/** The position of the next element in the page. */
+		private int position;
+
+		/** The last node read, or null before the first page. */
+		private ScanNode<V> cursor;
+
+		/** The sequence number of the last node to read. */
+		private long lastSequence;
+
+		/** The flag to indicate whether the last node has been read. */
+		private boolean exhausted;
+
+		/**
+		 * Instantiates a new paged spliterator.
+		 */
+		PagedSpliterator() {
+			super(Long.MAX_VALUE, Spliterator.CONCURRENT | Spliterator.NONNULL);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+		 */
+		@Override
+		public boolean tryAdvance(Consumer<? super CacheElement<V>> action) {
+			while (position == page.size()) {
+				if (exhausted) {
+					return false;
+				}
+				readPage();
+			}
+			action.accept(page.get(position++));
+			return true;
+		}
+
+		/**
+		 * Read the unexpired elements of the next page of nodes.
+		 */
+		private void readPage() {
+			page.clear();
+			position = 0;
+			long now = System.currentTimeMillis();
+			lock.lock();
+			try {
+				ScanNode<V> node;
+				if (cursor == null) {
+					lastSequence = scanSequence;
+					node = scanHead;
+				} else {
+					node = cursor.next;
+				}
+				for (int i = 0; i < SCAN_PAGE_SIZE && node != null && node.sequence <= lastSequence; i++) {
+					CacheElement<V> cacheElement = node.element;
+					if (cacheElement != null && !cacheElement.isExpired(now)) {
+						page.add(cacheElement);
+					}
+					cursor = node;
+					node = node.next;
+				}
+				exhausted = node == null || node.sequence > lastSequence;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
 }
@@ -0,0 +1,274 @@
+package com.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Class LoopbackTransport is an in-process {@link CacheTransport} which
+ * connects several nodes living in the same JVM through a shared
+ * {@link Network}. Messages are delivered synchronously on the calling thread
+ * and the elements are copied on the way, the same way a wire transport would
+ * hand every node its own instance. A node joins the network when its first
+ * cache is bound, and the other nodes only route the keys of a cache to the
+ * nodes on which it is bound, so that a node owns keys only while it can serve
+ * them. It is intended for testing the distributed cache without a real
+ * network.
+ */
+public class LoopbackTransport implements CacheTransport {
+
+	/** The network this node belongs to. */
+	private final Network network;
+
+	/** The local node id. */
+	private final String nodeId;
+
+	/** The receivers bound on this node, by cache name. */
+	private final Map<String, Receiver> receivers = new ConcurrentHashMap<String, Receiver>();
+
+	/**
+	 * Instantiates a new loopback transport.
+	 *
+	 * @param network
+	 *            the network
+	 * @param nodeId
+	 *            the local node id
+	 */
+	public LoopbackTransport(Network network, String nodeId) {
+		this.network = network;
+		this.nodeId = nodeId;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.CacheTransport#getLocalNodeId()
+	 */
+	@Override
+	public String getLocalNodeId() {
+		return nodeId;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.CacheTransport#getMembers()
+	 */
+	@Override
+	public Set<String> getMembers() {
+		return network.getMembers();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.CacheTransport#getMembers(java.lang.String)
+	 */
+	@Override
+	public Set<String> getMembers(String cacheName) {
+		return network.getMembers(cacheName);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.CacheTransport#bind(java.lang.String,
+	 * com.cache.CacheTransport.Receiver)
+	 */
+	@Override
+	public void bind(String cacheName, Receiver receiver) {
+		network.join(this);
+		receivers.put(cacheName, receiver);
+		network.notifyMembershipChange(cacheName);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.CacheTransport#unbind(java.lang.String)
+	 */
+	@Override
+	public void unbind(String cacheName) {
+		if (receivers.remove(cacheName) != null) {
+			network.notifyMembershipChange(cacheName);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.CacheTransport#get(java.lang.String, java.lang.String,
+	 * com.cache.CacheKey)
+	 */
+	@Override
+	public CacheElement<?> get(String targetNodeId, String cacheName, CacheKey cacheKey) {
+		Receiver receiver = network.lookup(targetNodeId).receivers.get(cacheName);
+		return receiver == null ? null : copy(receiver.onGet(cacheKey));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.CacheTransport#insert(java.lang.String, java.lang.String,
+	 * com.cache.CacheElement)
+	 */
+	@Override
+	public void insert(String targetNodeId, String cacheName, CacheElement<?> cacheElement) {
+		Receiver receiver = network.lookup(targetNodeId).receivers.get(cacheName);
+		if (receiver != null) {
+			receiver.onInsert(copy(cacheElement));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.CacheTransport#remove(java.lang.String, java.lang.String,
+	 * com.cache.CacheKey)
+	 */
+	@Override
+	public boolean remove(String targetNodeId, String cacheName, CacheKey cacheKey) {
+		Receiver receiver = network.lookup(targetNodeId).receivers.get(cacheName);
+		return receiver != null && receiver.onRemove(cacheKey);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.CacheTransport#invalidate(java.lang.String,
+	 * com.cache.CacheKey)
+	 */
+	@Override
+	public void invalidate(String cacheName, CacheKey cacheKey) {
+		for (LoopbackTransport node : network.nodes.values()) {
+			if (node == this) {
+				continue;
+			}
+			Receiver receiver = node.receivers.get(cacheName);
+			if (receiver != null) {
+				receiver.onInvalidate(cacheKey);
+			}
+		}
+	}
+
+	/**
+	 * Leave the network. The remaining nodes are notified of the membership
+	 * change.
+	 */
+	public void leave() {
+		network.leave(this);
+	}
+
+	/**
+	 * Copy an element, standing in for the serialization of a real transport.
+	 *
+	 * @param <V>
+	 *            the value type
+	 * @param cacheElement
+	 *            the cache element
+	 * @return the copy
+	 */
+	private static <V> CacheElement<V> copy(CacheElement<V> cacheElement) {
+		if (cacheElement == null) {
+			return null;
+		}
+		return new CacheElement<V>(cacheElement.getId(), cacheElement.getValue(), cacheElement.getTimeToLive());
+	}
+
+	/**
+	 * The Class Network is the shared medium the loopback nodes are connected
+	 * to.
+	 */
+	public static class Network {
+
+		/** The nodes, by node id. */
+		private final Map<String, LoopbackTransport> nodes = new ConcurrentHashMap<String, LoopbackTransport>();
+
+		/**
+		 * Return the ids of the nodes on the network.
+		 *
+		 * @return the member ids
+		 */
+		public Set<String> getMembers() {
+			return Collections.unmodifiableSet(new TreeSet<String>(nodes.keySet()));
+		}
+
+		/**
+		 * Return the ids of the nodes on which the given cache is bound.
+		 *
+		 * @param cacheName
+		 *            the cache name
+		 * @return the member ids
+		 */
+		public Set<String> getMembers(String cacheName) {
+			Set<String> members = new TreeSet<String>();
+			for (LoopbackTransport node : nodes.values()) {
+				if (node.receivers.containsKey(cacheName)) {
+					members.add(node.nodeId);
+				}
+			}
+			return Collections.unmodifiableSet(members);
+		}
+
+		/**
+		 * Join a node to the network, if not already on it.
+		 *
+		 * @param node
+		 *            the node
+		 */
+		private void join(LoopbackTransport node) {
+			LoopbackTransport existing = nodes.putIfAbsent(node.nodeId, node);
+			if (existing != null && existing != node) {
+				throw new IllegalArgumentException("Node " + node.nodeId + " is already on the network");
+			}
+		}
+
+		/**
+		 * Remove a node from the network.
+		 *
+		 * @param node
+		 *            the node
+		 */
+		private void leave(LoopbackTransport node) {
+			if (nodes.remove(node.nodeId, node)) {
+				for (String cacheName : node.receivers.keySet()) {
+					notifyMembershipChange(cacheName);
+				}
+			}
+		}
+
+		/**
+		 * Find a node by its id.
+		 *
+		 * @param nodeId
+		 *            the node id
+		 * @return the node
+		 */
+		private LoopbackTransport lookup(String nodeId) {
+			LoopbackTransport node = nodes.get(nodeId);
+			if (node == null) {
+				throw new IllegalStateException("Node " + nodeId + " is not reachable");
+			}
+			return node;
+		}
+
+		/**
+		 * Notify every receiver bound to the given cache of the nodes it is
+		 * now bound on.
+		 *
+		 * @param cacheName
+		 *            the cache name
+		 */
+		private void notifyMembershipChange(String cacheName) {
+			Set<String> members = getMembers(cacheName);
+			for (LoopbackTransport node : nodes.values()) {
+				Receiver receiver = node.receivers.get(cacheName);
+				if (receiver != null) {
+					receiver.onMembershipChange(members);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package com.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The Class NegativeCache remembers the keys which have been found absent from
+ * the underlying store, so that the next lookups of those keys are answered
+ * without going to the store. The keys are kept apart from the elements of the
+ * cache, so that they neither need a sentinel value nor take the room of real
+ * elements: the negative cache has its own, usually much smaller, size and a
+ * time to live of its own after which the store is asked again. When full, the
+ * oldest key is dropped.
+ */
+class NegativeCache {
+
+	/** The maximum number of keys. */
+	private final int maxSize;
+
+	/** The time(in milliseconds) a key is known absent for. */
+	private final long timeToLive;
+
+	/** The lock guarding the keys. */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** The expiration time of every key, oldest first, guarded by the lock. */
+	private final LinkedHashMap<CacheKey, Long> expirationTimes;
+
+	/**
+	 * Instantiates a new negative cache.
+	 *
+	 * @param maxSize
+	 *            the maximum number of keys
+	 * @param timeToLive
+	 *            the time(in milliseconds) a key is known absent for
+	 */
+	NegativeCache(int maxSize, long timeToLive) {
+		this.maxSize = maxSize;
+		this.timeToLive = timeToLive;
+		expirationTimes = new LinkedHashMap<CacheKey, Long>(16, 0.75f, false) {
+			/**
+			 *
+			 */
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CacheKey, Long> eldest) {
+				return size() > NegativeCache.this.maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Remember that a key is absent from the store.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	void put(CacheKey cacheKey) {
+		lock.lock();
+		try {
+			/*
+			 * Remove first so that the key moves to the newest end
+			 */
+			expirationTimes.remove(cacheKey);
+			expirationTimes.put(cacheKey, System.currentTimeMillis() + timeToLive);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Check whether a key is known to be absent from the store, dropping it if
+	 * its time to live has elapsed.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 * @return true, if known absent
+	 */
+	boolean contains(CacheKey cacheKey) {
+		lock.lock();
+		try {
+			Long expirationTime = expirationTimes.get(cacheKey);
+			if (expirationTime == null) {
+				return false;
+			}
+			if (expirationTime < System.currentTimeMillis()) {
+				expirationTimes.remove(cacheKey);
+				return false;
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Forget a key, which has been added to the store.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	void remove(CacheKey cacheKey) {
+		lock.lock();
+		try {
+			expirationTimes.remove(cacheKey);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Forget all the keys.
+	 */
+	void clear() {
+		lock.lock();
+		try {
+			expirationTimes.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the maximum number of keys.
+	 *
+	 * @return the max size
+	 */
+	int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Gets the time a key is known absent for.
+	 *
+	 * @return the time to live(in milliseconds)
+	 */
+	long getTimeToLive() {
+		return timeToLive;
+	}
+}
@@ -0,0 +1,32 @@
+package com.cache;
+
+/**
+ * The Enum RemovalCause tells why an element has left a cache.
+ */
+public enum RemovalCause {
+
+	/** The element has been removed by the application. */
+	EXPLICIT,
+
+	/** The element has been replaced by an element with the same key. */
+	REPLACED,
+
+	/** The element has been evicted to keep the cache within its size. */
+	SIZE,
+
+	/** The element has outlived its time to live. */
+	EXPIRED,
+
+	/** The value of the element has been reclaimed by the garbage collector. */
+	COLLECTED;
+
+	/**
+	 * Check whether the element has been removed by the cache itself rather
+	 * than by the application.
+	 *
+	 * @return true, if evicted
+	 */
+	public boolean wasEvicted() {
+		return this == SIZE || this == EXPIRED || this == COLLECTED;
+	}
+}
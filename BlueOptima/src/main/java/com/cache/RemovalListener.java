@@ -0,0 +1,24 @@
+package com.cache;
+
+/**
+ * The listener interface for receiving the elements removed from a cache. The
+ * listener is called asynchronously, after the cache has released its lock,
+ * so it may take its time and may even use the cache.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+@FunctionalInterface
+public interface RemovalListener<V> {
+
+	/**
+	 * Called for every element removed from the cache. The value of an element
+	 * removed because it was collected is no longer available.
+	 *
+	 * @param cacheElement
+	 *            the removed element
+	 * @param cause
+	 *            the cause of the removal
+	 */
+	public void onRemoval(CacheElement<V> cacheElement, RemovalCause cause);
+}
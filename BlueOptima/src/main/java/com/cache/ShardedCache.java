@@ -0,0 +1,560 @@
+package com.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The Class ShardedCache splits one logical cache into several independent
+ * {@link LRUCache} shards, each with its own lock, so that the threads working
+ * on different shards do not contend with each other. The keys are assigned to
+ * the shards with a {@link ConsistentHashRing}, so that changing the number of
+ * shards with {@link #resize(int)} or the weight of a hot shard with
+ * {@link #rebalance(int, double)} only moves the keys whose owner changed.
+ * <p>
+ * The capacity of the cache is divided among the shards in proportion to their
+ * weight. The shards publish their events through the dispatcher of the
+ * sharded cache, and moving an element between shards raises no event.
+ * A traversal of the cache traverses the shards one after the other, and
+ * parallel streams split it by shard first.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+public class ShardedCache<V> extends Cache<V> {
+
+	/** The shards, by shard id. */
+	private volatile Map<Integer, LRUCache<V>> shards;
+
+	/** The number of operations served by each shard. */
+	private volatile Map<Integer, LongAdder> shardLoad;
+
+	/** The ring mapping the keys to their shard. */
+	private final ConsistentHashRing<Integer> ring = new ConsistentHashRing<Integer>();
+
+	/**
+	 * The lock keeping the routing stable while the elements move between
+	 * shards. The cache operations share it, resizing and rebalancing take it
+	 * exclusively.
+	 */
+	private final ReadWriteLock routingLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Instantiates a new sharded cache.
+	 *
+	 * @param name
+	 *            the name
+	 * @param size
+	 *            the maximum number of elements allowed in this cache
+	 * @param ttl
+	 *            the maximum amount of time an elements reside in this cache
+	 * @param shardCount
+	 *            the number of shards
+	 */
+	public ShardedCache(String name, int size, int ttl, int shardCount) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("shardCount must be positive");
+		}
+		cacheName = name;
+		cacheSize = size;
+		timeToLive = ttl;
+		shards = Collections.emptyMap();
+		shardLoad = Collections.emptyMap();
+		resize(shardCount);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#insert(com.cache.CacheElement, boolean)
+	 */
+	@Override
+	protected void insert(CacheElement<V> cacheElement, boolean writeThrough) {
+		traceInsert(cacheElement.getId());
+		if (writeThrough) {
+			writeThrough(cacheElement);
+		}
+		recordPresent(cacheElement.getId());
+		routingLock.readLock().lock();
+		try {
+			shardFor(cacheElement.getId()).insert(cacheElement);
+		} finally {
+			routingLock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#get(com.cache.CacheKey)
+	 */
+	@Override
+	public CacheElement<V> get(CacheKey cachekey) {
+		traceGet(cachekey);
+		CacheElement<V> cacheElement;
+		routingLock.readLock().lock();
+		try {
+			cacheElement = shardFor(cachekey).get(cachekey);
+		} finally {
+			routingLock.readLock().unlock();
+		}
+		stats.recordLookup(cacheElement != null);
+		return cacheElement;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#remove(com.cache.CacheKey)
+	 */
+	@Override
+	public boolean remove(CacheKey cacheKey) {
+		deleteThrough(cacheKey);
+		routingLock.readLock().lock();
+		try {
+			return shardFor(cacheKey).remove(cacheKey);
+		} finally {
+			routingLock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#removeAllExpired()
+	 */
+	@Override
+	public void removeAllExpired() {
+		for (LRUCache<V> shard : shards.values()) {
+			shard.removeAllExpired();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#clear()
+	 */
+	@Override
+	public void clear() {
+		for (LRUCache<V> shard : shards.values()) {
+			shard.clear();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#getName()
+	 */
+	@Override
+	public String getName() {
+		return cacheName;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#getValues()
+	 */
+	@Override
+	public List<CacheElement<V>> getValues() {
+		List<CacheElement<V>> values = new ArrayList<CacheElement<V>>();
+		for (LRUCache<V> shard : shards.values()) {
+			values.addAll(shard.getValues());
+		}
+		return values;
+	}
+
+	/**
+	 * Return a weakly consistent spliterator over the elements of all the
+	 * shards. An element moved to another shard by a resize or a rebalance
+	 * taking place during the traversal may be missed or returned twice.
+	 *
+	 * @see com.cache.Cache#spliterator()
+	 */
+	@Override
+	public Spliterator<CacheElement<V>> spliterator() {
+		return new ShardSpliterator<V>(new ArrayList<LRUCache<V>>(shards.values()), 0, shards.size());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#setExpiryMode(com.cache.ExpiryMode)
+	 */
+	@Override
+	public void setExpiryMode(ExpiryMode expiryMode) {
+		routingLock.writeLock().lock();
+		try {
+			super.setExpiryMode(expiryMode);
+			for (LRUCache<V> shard : shards.values()) {
+				shard.setExpiryMode(expiryMode);
+			}
+		} finally {
+			routingLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Change the capacity of the cache, which is divided among the shards in
+	 * proportion to their weight.
+	 *
+	 * @see com.cache.Cache#setCacheSize(int)
+	 */
+	@Override
+	public void setCacheSize(int size) {
+		routingLock.writeLock().lock();
+		try {
+			cacheSize = size;
+			redistribute(Collections.<LRUCache<V>> emptyList());
+		} finally {
+			routingLock.writeLock().unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#setValueCompression(com.cache.ValueCodec, int)
+	 */
+	@Override
+	public void setValueCompression(ValueCodec codec, int threshold) {
+		routingLock.writeLock().lock();
+		try {
+			super.setValueCompression(codec, threshold);
+			for (LRUCache<V> shard : shards.values()) {
+				shard.valueCompressor = valueCompressor;
+			}
+		} finally {
+			routingLock.writeLock().unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#setValueStrength(com.cache.ValueStrength)
+	 */
+	@Override
+	public void setValueStrength(ValueStrength valueStrength) {
+		routingLock.writeLock().lock();
+		try {
+			super.setValueStrength(valueStrength);
+			for (LRUCache<V> shard : shards.values()) {
+				shard.setValueStrength(valueStrength);
+			}
+		} finally {
+			routingLock.writeLock().unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#setTimeToLive(int)
+	 */
+	@Override
+	public void setTimeToLive(int timeToLive) {
+		routingLock.writeLock().lock();
+		try {
+			super.setTimeToLive(timeToLive);
+			for (LRUCache<V> shard : shards.values()) {
+				shard.setTimeToLive(timeToLive);
+			}
+		} finally {
+			routingLock.writeLock().unlock();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.Cache#setExpiry(com.cache.Expiry)
+	 */
+	@Override
+	public void setExpiry(Expiry<V> expiry) {
+		routingLock.writeLock().lock();
+		try {
+			super.setExpiry(expiry);
+			for (LRUCache<V> shard : shards.values()) {
+				shard.setExpiry(expiry);
+			}
+		} finally {
+			routingLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Change the number of shards. The shards are numbered from 0, so growing
+	 * adds the shards with the next ids and shrinking drops the shards with
+	 * the highest ids. Only the elements whose shard changed are moved.
+	 *
+	 * @param shardCount
+	 *            the new number of shards
+	 */
+	public void resize(int shardCount) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("shardCount must be positive");
+		}
+		routingLock.writeLock().lock();
+		try {
+			Map<Integer, LRUCache<V>> newShards = new TreeMap<Integer, LRUCache<V>>(shards);
+			Map<Integer, LongAdder> newShardLoad = new HashMap<Integer, LongAdder>(shardLoad);
+			List<LRUCache<V>> dropped = new ArrayList<LRUCache<V>>();
+			for (int id = 0; id < shardCount; id++) {
+				if (!newShards.containsKey(id)) {
+					LRUCache<V> shard = new LRUCache<V>(cacheName, cacheSize, timeToLive);
+					shard.setExpiryMode(expiryMode);
+					shard.setExpiry(expiry);
+					shard.setValueStrength(valueStrength);
+					shard.valueCompressor = valueCompressor;
+					shard.eventDispatcher = eventDispatcher;
+					newShards.put(id, shard);
+					newShardLoad.put(id, new LongAdder());
+					ring.add(id);
+				}
+			}
+			for (int id = shardCount; id < shards.size(); id++) {
+				dropped.add(newShards.remove(id));
+				newShardLoad.remove(id);
+				ring.remove(id);
+			}
+			shards = newShards;
+			shardLoad = newShardLoad;
+			redistribute(dropped);
+		} finally {
+			routingLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Change the weight of a shard. Lowering the weight of a hot shard moves
+	 * part of its keys, and of its capacity, to the other shards.
+	 *
+	 * @param shardId
+	 *            the shard id
+	 * @param weight
+	 *            the relative weight of the shard, 1.0 by default
+	 */
+	public void rebalance(int shardId, double weight) {
+		routingLock.writeLock().lock();
+		try {
+			if (!shards.containsKey(shardId)) {
+				throw new IllegalArgumentException("No shard with id " + shardId);
+			}
+			ring.add(shardId, weight);
+			redistribute(Collections.<LRUCache<V>> emptyList());
+		} finally {
+			routingLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Return the number of elements in every shard.
+	 *
+	 * @return the shard sizes, by shard id
+	 */
+	public Map<Integer, Integer> getShardSizes() {
+		Map<Integer, Integer> sizes = new TreeMap<Integer, Integer>();
+		for (Map.Entry<Integer, LRUCache<V>> entry : shards.entrySet()) {
+			sizes.put(entry.getKey(), entry.getValue().getValues().size());
+		}
+		return sizes;
+	}
+
+	/**
+	 * Return the number of operations served by every shard since it was
+	 * created, to identify the hot shards.
+	 *
+	 * @return the shard load, by shard id
+	 */
+	public Map<Integer, Long> getShardLoad() {
+		Map<Integer, Long> load = new TreeMap<Integer, Long>();
+		for (Map.Entry<Integer, LongAdder> entry : shardLoad.entrySet()) {
+			load.put(entry.getKey(), entry.getValue().sum());
+		}
+		return load;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (LRUCache<V> shard : shards.values()) {
+			String contents = shard.toString();
+			if (!contents.isEmpty()) {
+				if (builder.length() > 0) {
+					builder.append(',');
+				}
+				builder.append(contents);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Return the shard owning the given key. Must be called while holding the
+	 * routing lock.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 * @return the shard
+	 */
+	private LRUCache<V> shardFor(CacheKey cacheKey) {
+		Integer id = ring.get(cacheKey);
+		shardLoad.get(id).increment();
+		return shards.get(id);
+	}
+
+	/**
+	 * Resize the shards in proportion to their weight and move the elements
+	 * which are not on their owning shard any more. Must be called while
+	 * holding the routing lock exclusively.
+	 *
+	 * @param dropped
+	 *            the shards which have been removed from the ring
+	 */
+	private void redistribute(List<LRUCache<V>> dropped) {
+		double totalWeight = 0;
+		for (Integer id : shards.keySet()) {
+			totalWeight += ring.getWeight(id);
+		}
+		/*
+		 * Grow the shards first so that the moved elements don't evict others
+		 */
+		for (Map.Entry<Integer, LRUCache<V>> entry : shards.entrySet()) {
+			int capacity = (int) Math.ceil(cacheSize * ring.getWeight(entry.getKey()) / totalWeight);
+			entry.getValue().setCacheSize(Math.max(capacity, entry.getValue().cacheSize));
+		}
+		for (LRUCache<V> shard : dropped) {
+			for (CacheElement<V> cacheElement : shard.getValues()) {
+				shards.get(ring.get(cacheElement.getId())).transferIn(cacheElement);
+			}
+		}
+		for (Map.Entry<Integer, LRUCache<V>> entry : shards.entrySet()) {
+			for (CacheElement<V> cacheElement : entry.getValue().getValues()) {
+				Integer owner = ring.get(cacheElement.getId());
+				if (!owner.equals(entry.getKey())) {
+					entry.getValue().transferOut(cacheElement.getId());
+					shards.get(owner).transferIn(cacheElement);
+				}
+			}
+		}
+		for (Map.Entry<Integer, LRUCache<V>> entry : shards.entrySet()) {
+			int capacity = (int) Math.ceil(cacheSize * ring.getWeight(entry.getKey()) / totalWeight);
+			entry.getValue().setCacheSize(Math.max(capacity, 1));
+		}
+	}
+
+	/**
+	 * The Class ShardSpliterator traverses a range of shards, and splits by
+	 * halving the range until a single shard is left, whose own spliterator
+	 * is then split.
+	 *
+	 * @param <V>
+	 *            the value type of CacheElement
+	 */
+	private static final class ShardSpliterator<V> implements Spliterator<CacheElement<V>> {
+
+		/** The shards. */
+		private final List<LRUCache<V>> shards;
+
+		/** The index of the next shard to traverse. */
+		private int index;
+
+		/** The index after the last shard to traverse. */
+		private final int fence;
+
+		/** The spliterator of the shard being traversed, if any. */
+		private Spliterator<CacheElement<V>> current;
+
+		/**
+		 * Instantiates a new shard spliterator.
+		 *
+		 * @param shards
+		 *            the shards
+		 * @param index
+		 *            the index of the first shard to traverse
+		 * @param fence
+		 *            the index after the last shard to traverse
+		 */
+		ShardSpliterator(List<LRUCache<V>> shards, int index, int fence) {
+			this.shards = shards;
+			this.index = index;
+			this.fence = fence;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Spliterator#tryAdvance(java.util.function.Consumer)
+		 */
+		@Override
+		public boolean tryAdvance(Consumer<? super CacheElement<V>> action) {
+			while (true) {
+				if (current == null) {
+					if (index >= fence) {
+						return false;
+					}
+					current = shards.get(index++).spliterator();
+				}
+				if (current.tryAdvance(action)) {
+					return true;
+				}
+				current = null;
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Spliterator#trySplit()
+		 */
+		@Override
+		public Spliterator<CacheElement<V>> trySplit() {
+			if (fence - index > 1) {
+				int middle = (index + fence) >>> 1;
+				ShardSpliterator<V> prefix = new ShardSpliterator<V>(shards, index, middle);
+				index = middle;
+				return prefix;
+			}
+			if (current == null && index < fence) {
+				current = shards.get(index++).spliterator();
+			}
+			return current == null ? null : current.trySplit();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Spliterator#estimateSize()
+		 */
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.util.Spliterator#characteristics()
+		 */
+		@Override
+		public int characteristics() {
+			return Spliterator.CONCURRENT | Spliterator.NONNULL;
+		}
+	}
+}
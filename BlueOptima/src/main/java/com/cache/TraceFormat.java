@@ -0,0 +1,99 @@
+package com.cache;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Enum TraceFormat defines how a trace of the accesses to a cache is laid
+ * out in a file, so that it can be recorded by a {@link TraceRecorder} and
+ * replayed by the {@link CacheSimulator}.
+ */
+public enum TraceFormat {
+
+	/**
+	 * One key per line, in UTF-8. The keys must not contain line breaks.
+	 */
+	TEXT {
+		@Override
+		void write(DataOutputStream out, CacheKey cacheKey) throws IOException {
+			out.write(cacheKey.getKey().getBytes(StandardCharsets.UTF_8));
+			out.write('\n');
+		}
+
+		@Override
+		public List<CacheKey> read(InputStream in) throws IOException {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+			Map<String, CacheKey> keys = new HashMap<String, CacheKey>();
+			List<CacheKey> trace = new ArrayList<CacheKey>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					trace.add(keys.computeIfAbsent(line, CacheKey::new));
+				}
+			}
+			return trace;
+		}
+	},
+
+	/**
+	 * One 64-bit hash of the key per access, big-endian. The file is much
+	 * smaller and the keys are not disclosed, at the cost of a negligible
+	 * chance of collisions.
+	 */
+	BINARY {
+		@Override
+		void write(DataOutputStream out, CacheKey cacheKey) throws IOException {
+			out.writeLong(cacheKey.hash64());
+		}
+
+		@Override
+		public List<CacheKey> read(InputStream in) throws IOException {
+			DataInputStream data = new DataInputStream(in);
+			Map<Long, CacheKey> keys = new HashMap<Long, CacheKey>();
+			List<CacheKey> trace = new ArrayList<CacheKey>();
+			while (true) {
+				long id;
+				try {
+					id = data.readLong();
+				} catch (EOFException e) {
+					return trace;
+				}
+				trace.add(keys.computeIfAbsent(id, k -> new CacheKey(Long.toHexString(k))));
+			}
+		}
+	};
+
+	/**
+	 * Write one access to the trace.
+	 *
+	 * @param out
+	 *            the trace output
+	 * @param cacheKey
+	 *            the accessed key
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	abstract void write(DataOutputStream out, CacheKey cacheKey) throws IOException;
+
+	/**
+	 * Read a whole trace. Identical keys are shared so that a long trace of a
+	 * few keys takes little memory.
+	 *
+	 * @param in
+	 *            the trace input, which is not closed
+	 * @return the accessed keys, in order
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public abstract List<CacheKey> read(InputStream in) throws IOException;
+}
@@ -0,0 +1,135 @@
+package com.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The Class TraceRecorder records the keys accessed in one or more caches, so
+ * that the {@link CacheSimulator} can replay the real workload against other
+ * sizes and engines.
+ * <p>
+ * Every lookup is recorded. An insertion is recorded too, unless it follows a
+ * lookup of the same key by the same thread: that insertion fills the miss
+ * of the lookup, or updates the element just read, and the simulator replays
+ * it from the lookup alone. The accesses are written through a shared buffer
+ * under a lock, so recording slows a busy cache down and is meant to be
+ * turned on for a sampling period only.
+ */
+public class TraceRecorder implements Closeable {
+
+	/** The trace output. */
+	private final DataOutputStream out;
+
+	/** The trace format. */
+	private final TraceFormat format;
+
+	/** The lock serializing the writes. */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** The last key looked up by every thread. */
+	private final ThreadLocal<CacheKey> lastLookup = new ThreadLocal<CacheKey>();
+
+	/** The number of accesses recorded, guarded by the lock. */
+	private long recordCount;
+
+	/** The first write failure, after which nothing more is recorded. */
+	private volatile IOException failure;
+
+	/**
+	 * Instantiates a new trace recorder.
+	 *
+	 * @param out
+	 *            the trace output, closed with the recorder
+	 * @param format
+	 *            the trace format
+	 */
+	public TraceRecorder(OutputStream out, TraceFormat format) {
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.format = format;
+	}
+
+	/**
+	 * Record a lookup.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	void recordGet(CacheKey cacheKey) {
+		lastLookup.set(cacheKey);
+		record(cacheKey);
+	}
+
+	/**
+	 * Record an insertion, unless it follows a lookup of the same key.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	void recordInsert(CacheKey cacheKey) {
+		CacheKey lookedUp = lastLookup.get();
+		lastLookup.remove();
+		if (!cacheKey.equals(lookedUp)) {
+			record(cacheKey);
+		}
+	}
+
+	/**
+	 * Gets the number of accesses recorded so far.
+	 *
+	 * @return the record count
+	 */
+	public long getRecordCount() {
+		lock.lock();
+		try {
+			return recordCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Flush and close the trace output.
+	 *
+	 * @throws IOException
+	 *             the first failure to write the trace, or to close it
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			out.close();
+		} finally {
+			lock.unlock();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Write an access to the trace. A failure is kept for
+	 * {@link #close()} rather than thrown at the cache user.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 */
+	private void record(CacheKey cacheKey) {
+		if (failure != null) {
+			return;
+		}
+		lock.lock();
+		try {
+			format.write(out, cacheKey);
+			recordCount++;
+		} catch (IOException e) {
+			failure = e;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
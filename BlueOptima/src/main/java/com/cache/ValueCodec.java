@@ -0,0 +1,28 @@
+package com.cache;
+
+/**
+ * The Interface ValueCodec compresses the values a cache stores compressed
+ * (see {@link Cache#setValueCompression(ValueCodec, int)}). An implementation
+ * must be thread safe, as it is called by every thread inserting in or
+ * reading from the cache.
+ */
+public interface ValueCodec {
+
+	/**
+	 * Compress the given bytes.
+	 *
+	 * @param data
+	 *            the bytes to compress
+	 * @return the compressed bytes
+	 */
+	public byte[] encode(byte[] data);
+
+	/**
+	 * Restore the bytes compressed by {@link #encode(byte[])}.
+	 *
+	 * @param data
+	 *            the compressed bytes
+	 * @return the original bytes
+	 */
+	public byte[] decode(byte[] data);
+}
@@ -0,0 +1,82 @@
+package com.cache;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The Class ValueCompressor compresses the large values of a cache with a
+ * codec, and counts the bytes saved and the time spent in the stats of the
+ * cache. Strings and byte arrays of at least the threshold size are
+ * compressed, strings being encoded in UTF-8 first; other values, and values
+ * which don't get smaller, are stored as they are.
+ */
+final class ValueCompressor {
+
+	/** The codec. */
+	private final ValueCodec codec;
+
+	/** The size(in bytes) from which values are compressed. */
+	private final int threshold;
+
+	/** The stats of the cache. */
+	private final CacheStats stats;
+
+	/**
+	 * Instantiates a new value compressor.
+	 *
+	 * @param codec
+	 *            the codec
+	 * @param threshold
+	 *            the size(in bytes) from which values are compressed
+	 * @param stats
+	 *            the stats of the cache
+	 */
+	ValueCompressor(ValueCodec codec, int threshold, CacheStats stats) {
+		this.codec = codec;
+		this.threshold = threshold;
+		this.stats = stats;
+	}
+
+	/**
+	 * Compress a value, if it is large enough and gets smaller.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the compressed value, or null if the value is to be stored as
+	 *         it is
+	 */
+	byte[] compress(Object value) {
+		byte[] data;
+		if (value instanceof byte[]) {
+			data = (byte[]) value;
+		} else if (value instanceof String && ((String) value).length() * 3 >= threshold) {
+			data = ((String) value).getBytes(StandardCharsets.UTF_8);
+		} else {
+			return null;
+		}
+		if (data.length < threshold) {
+			return null;
+		}
+		long start = System.nanoTime();
+		byte[] compressed = codec.encode(data);
+		boolean smaller = compressed.length < data.length;
+		stats.recordCompression(data.length, smaller ? compressed.length : data.length, System.nanoTime() - start);
+		return smaller ? compressed : null;
+	}
+
+	/**
+	 * Restore a compressed value.
+	 *
+	 * @param compressed
+	 *            the compressed value
+	 * @param string
+	 *            whether the value is a string rather than a byte array
+	 * @return a new copy of the value
+	 */
+	Object decompress(byte[] compressed, boolean string) {
+		long start = System.nanoTime();
+		byte[] data = codec.decode(compressed);
+		Object value = string ? new String(data, StandardCharsets.UTF_8) : data;
+		stats.recordDecompression(System.nanoTime() - start);
+		return value;
+	}
+}
@@ -0,0 +1,105 @@
+package com.cache;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+
+/**
+ * The Interface ValueReference is a reference to the value of a cache element
+ * which remembers the element, so that the cache can remove the element once
+ * the garbage collector has cleared the reference and enqueued it.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+interface ValueReference<V> {
+
+	/**
+	 * Return the value, or null if it has been reclaimed.
+	 *
+	 * @return the value
+	 */
+	public V get();
+
+	/**
+	 * Return the element holding this reference.
+	 *
+	 * @return the cache element
+	 */
+	public CacheElement<V> getElement();
+
+	/**
+	 * The Class Soft is a value reference cleared under memory pressure.
+	 *
+	 * @param <V>
+	 *            the value type of CacheElement
+	 */
+	static final class Soft<V> extends SoftReference<V> implements ValueReference<V> {
+
+		/** The element holding this reference. */
+		private final CacheElement<V> element;
+
+		/**
+		 * Instantiates a new soft value reference.
+		 *
+		 * @param element
+		 *            the element holding the value
+		 * @param value
+		 *            the value
+		 * @param queue
+		 *            the queue the reference is enqueued in once cleared
+		 */
+		Soft(CacheElement<V> element, V value, ReferenceQueue<? super V> queue) {
+			super(value, queue);
+			this.element = element;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see com.cache.ValueReference#getElement()
+		 */
+		@Override
+		public CacheElement<V> getElement() {
+			return element;
+		}
+	}
+
+	/**
+	 * The Class Weak is a value reference cleared as soon as the value is not
+	 * strongly reachable.
+	 *
+	 * @param <V>
+	 *            the value type of CacheElement
+	 */
+	static final class Weak<V> extends WeakReference<V> implements ValueReference<V> {
+
+		/** The element holding this reference. */
+		private final CacheElement<V> element;
+
+		/**
+		 * Instantiates a new weak value reference.
+		 *
+		 * @param element
+		 *            the element holding the value
+		 * @param value
+		 *            the value
+		 * @param queue
+		 *            the queue the reference is enqueued in once cleared
+		 */
+		Weak(CacheElement<V> element, V value, ReferenceQueue<? super V> queue) {
+			super(value, queue);
+			this.element = element;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see com.cache.ValueReference#getElement()
+		 */
+		@Override
+		public CacheElement<V> getElement() {
+			return element;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package com.cache;
+
+/**
+ * The Enum ValueStrength defines how strongly a cache holds the values of its
+ * elements, and therefore whether the garbage collector may reclaim them.
+ */
+public enum ValueStrength {
+
+	/** The values are held until they are removed from the cache. */
+	STRONG,
+
+	/**
+	 * The values are held through soft references, which the garbage collector
+	 * clears when the heap is about to run out.
+	 */
+	SOFT,
+
+	/**
+	 * The values are held through weak references, which the garbage collector
+	 * clears as soon as no one else holds the value.
+	 */
+	WEAK
+}
@@ -0,0 +1,311 @@
+package com.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The Class WriteBehindWriter is a {@link CacheWriter} which returns as soon
+ * as the change is queued, and writes the queued changes to the store in
+ * batches from a background thread.
+ * <p>
+ * The queue holds only the latest change of every key, so a burst of updates
+ * to a hot key collapses into a single write, and a deletion cancels the
+ * writes queued before it. A batch is written once the queue holds the batch
+ * size of keys, or once the oldest change has waited for the flush interval,
+ * whichever comes first. A batch which fails is queued again, behind the
+ * changes made since, and retried after the flush interval.
+ *
+ * @param <V>
+ *            the value type of CacheElement
+ */
+public class WriteBehindWriter<V> implements CacheWriter<V> {
+
+	/** The writer writing to the store. */
+	private final CacheWriter<V> writer;
+
+	/** The number of keys which triggers a flush. */
+	private final int batchSize;
+
+	/** The maximum time(in milliseconds) a change waits before it is written. */
+	private final long flushInterval;
+
+	/**
+	 * The latest change of every key, in the order the keys were first
+	 * changed: the element to write, or null to delete the key.
+	 */
+	private Map<CacheKey, CacheElement<V>> pending = new LinkedHashMap<CacheKey, CacheElement<V>>();
+
+	/** The time(in milliseconds since the epoch) the oldest change was queued. */
+	private long oldestChange;
+
+	/** The lock guarding the queue. */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** Signalled when the queue holds a full batch or the writer is closed. */
+	private final Condition batchReady = lock.newCondition();
+
+	/** The lock letting one thread at a time write a batch, in queue order. */
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	/** The background thread writing the batches. */
+	private final Flusher flusher;
+
+	/** Whether the writer has been closed, guarded by the lock. */
+	private boolean closed;
+
+	/**
+	 * Instantiates a new write behind writer and starts its background thread.
+	 *
+	 * @param writer
+	 *            the writer writing to the store
+	 * @param batchSize
+	 *            the number of keys which triggers a flush
+	 * @param flushInterval
+	 *            the maximum time a change waits before it is written
+	 * @param unit
+	 *            the unit of the flush interval
+	 */
+	public WriteBehindWriter(CacheWriter<V> writer, int batchSize, long flushInterval, TimeUnit unit) {
+		if (batchSize <= 0 || flushInterval <= 0) {
+			throw new IllegalArgumentException("batchSize and flushInterval must be positive");
+		}
+		this.writer = writer;
+		this.batchSize = batchSize;
+		this.flushInterval = unit.toMillis(flushInterval);
+		this.flusher = new Flusher();
+		flusher.start();
+	}
+
+	/**
+	 * Queue a copy of the element holding its value strongly, as the cache
+	 * may then hold the value of the element softly, weakly or compressed.
+	 *
+	 * @see com.cache.CacheWriter#write(com.cache.CacheElement)
+	 */
+	@Override
+	public void write(CacheElement<V> cacheElement) {
+		enqueue(cacheElement.getId(), new CacheElement<V>(cacheElement.getId(), cacheElement.getValue(),
+				cacheElement.getTimeToLive()));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.cache.CacheWriter#delete(com.cache.CacheKey)
+	 */
+	@Override
+	public void delete(CacheKey cacheKey) {
+		enqueue(cacheKey, null);
+	}
+
+	/**
+	 * Write all the queued changes from the calling thread.
+	 */
+	public void flush() {
+		while (flushBatch()) {
+			/*
+			 * Write until the queue is empty
+			 */
+		}
+	}
+
+	/**
+	 * Write all the queued changes and stop the background thread. Changes
+	 * made after closing are written through.
+	 *
+	 * @see com.cache.CacheWriter#close()
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+		} finally {
+			lock.unlock();
+		}
+		flusher.interrupt();
+		flush();
+		writer.close();
+	}
+
+	/**
+	 * Return the number of keys whose change has not been written yet.
+	 *
+	 * @return the pending count
+	 */
+	public int getPendingCount() {
+		lock.lock();
+		try {
+			return pending.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Queue the latest change of a key.
+	 *
+	 * @param cacheKey
+	 *            the cache key
+	 * @param cacheElement
+	 *            the element to write, or null to delete the key
+	 */
+	private void enqueue(CacheKey cacheKey, CacheElement<V> cacheElement) {
+		lock.lock();
+		try {
+			if (!closed) {
+				if (pending.isEmpty()) {
+					oldestChange = System.currentTimeMillis();
+				}
+				pending.put(cacheKey, cacheElement);
+				if (pending.size() >= batchSize) {
+					batchReady.signal();
+				}
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		if (cacheElement != null) {
+			writer.write(cacheElement);
+		} else {
+			writer.delete(cacheKey);
+		}
+	}
+
+	/**
+	 * Take the queued changes and write them to the store. If the store
+	 * fails, the changes are queued again unless the key has changed since.
+	 *
+	 * @return true, if there were changes to write
+	 */
+	private boolean flushBatch() {
+		flushLock.lock();
+		try {
+			Map<CacheKey, CacheElement<V>> batch;
+			lock.lock();
+			try {
+				if (pending.isEmpty()) {
+					return false;
+				}
+				batch = pending;
+				pending = new LinkedHashMap<CacheKey, CacheElement<V>>();
+			} finally {
+				lock.unlock();
+			}
+			List<CacheElement<V>> writes = new ArrayList<CacheElement<V>>();
+			List<CacheKey> deletes = new ArrayList<CacheKey>();
+			for (Map.Entry<CacheKey, CacheElement<V>> entry : batch.entrySet()) {
+				if (entry.getValue() != null) {
+					writes.add(entry.getValue());
+				} else {
+					deletes.add(entry.getKey());
+				}
+			}
+			try {
+				if (!writes.isEmpty()) {
+					writer.writeAll(writes);
+				}
+				if (!deletes.isEmpty()) {
+					writer.deleteAll(deletes);
+				}
+			} catch (RuntimeException e) {
+				requeue(batch);
+				throw e;
+			}
+			return true;
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Queue again the changes of a failed batch, except for the keys changed
+	 * since the batch was taken.
+	 *
+	 * @param batch
+	 *            the failed batch
+	 */
+	private void requeue(Map<CacheKey, CacheElement<V>> batch) {
+		lock.lock();
+		try {
+			Map<CacheKey, CacheElement<V>> newer = pending;
+			pending = batch;
+			pending.putAll(newer);
+			oldestChange = System.currentTimeMillis();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The Class Flusher is the background thread writing the queued changes
+	 * once a batch is full or the flush interval has elapsed.
+	 */
+	private class Flusher extends Thread {
+
+		/**
+		 * Instantiates a new flusher.
+		 */
+		Flusher() {
+			setDaemon(true);
+			setName("Write Behind Flusher");
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Thread#run()
+		 */
+		@Override
+		public void run() {
+			while (!isInterrupted()) {
+				try {
+					awaitBatch();
+					try {
+						flushBatch();
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+						sleep(flushInterval);
+					}
+				} catch (InterruptedException e) {
+					/*
+					 * Interrupted by close(), which writes the rest itself
+					 */
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Wait until the queue holds a full batch or its oldest change has
+		 * waited for the flush interval.
+		 *
+		 * @throws InterruptedException
+		 *             if the writer is closed
+		 */
+		private void awaitBatch() throws InterruptedException {
+			lock.lock();
+			try {
+				while (true) {
+					if (pending.size() >= batchSize) {
+						return;
+					}
+					long wait = pending.isEmpty() ? flushInterval
+							: oldestChange + flushInterval - System.currentTimeMillis();
+					if (!pending.isEmpty() && wait <= 0) {
+						return;
+					}
+					batchReady.await(wait, TimeUnit.MILLISECONDS);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
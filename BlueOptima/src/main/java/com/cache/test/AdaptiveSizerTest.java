@@ -0,0 +1,75 @@
+package com.cache.test;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cache.AdaptiveSizer;
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.ConcurrentLRUCache;
+
+public class AdaptiveSizerTest {
+
+	/**
+	 * Look up random keys among the given number, filling the misses.
+	 */
+	private static void access(Cache<Integer> cache, Random random, int keys, int count) {
+		for (int i = 0; i < count; i++) {
+			CacheKey cacheKey = new CacheKey(String.valueOf(random.nextInt(keys)));
+			if (cache.get(cacheKey) == null) {
+				cache.insert(new CacheElement<Integer>(cacheKey, i));
+			}
+		}
+	}
+
+	@Test
+	public void budgetGoesToUsefulCacheTest() {
+		Cache<Integer> useful = new ConcurrentLRUCache<Integer>("UsefulCache", 1000, 0);
+		Cache<Integer> scanned = new ConcurrentLRUCache<Integer>("ScannedCache", 1000, 0);
+		AdaptiveSizer sizer = new AdaptiveSizer(10, 1000, 600, 1);
+		sizer.addCache(useful);
+		sizer.addCache(scanned);
+		assert (useful.getCacheSize() == 10);
+
+		// One cache has a working set of 400 keys, the other never hits
+		Random random = new Random(42);
+		for (int round = 0; round < 40; round++) {
+			access(useful, random, 400, 4000);
+			access(scanned, random, Integer.MAX_VALUE, 4000);
+			sizer.adapt();
+			assert (useful.getCacheSize() + scanned.getCacheSize() <= 600);
+		}
+		assert (useful.getCacheSize() >= 350);
+		assert (scanned.getCacheSize() < 100);
+		assert (useful.getStats().getHitRate() > 0.5);
+
+		// A smaller budget shrinks the caches right away
+		sizer.setBudget(200);
+		assert (useful.getCacheSize() + scanned.getCacheSize() <= 210);
+	}
+
+	@Test
+	public void perCacheBoundsTest() {
+		Cache<Integer> cache = new ConcurrentLRUCache<Integer>("BoundedCache", 1000, 0);
+		AdaptiveSizer sizer = new AdaptiveSizer(10, 1000, 2000, 1);
+		sizer.addCache(cache, 1.0, 20, 100);
+		assert (cache.getCacheSize() == 20);
+
+		// The cache grows towards its working set of 150 keys, up to its maximum
+		Random random = new Random(42);
+		int largest = 0;
+		for (int round = 0; round < 20; round++) {
+			access(cache, random, 150, 4000);
+			sizer.adapt();
+			assert (cache.getCacheSize() >= 20 && cache.getCacheSize() <= 100);
+			largest = Math.max(largest, cache.getCacheSize());
+		}
+		assert (largest == 100);
+
+		// Narrower bounds apply right away
+		sizer.setBounds(cache, 20, 50);
+		assert (cache.getCacheSize() <= 50);
+	}
+}
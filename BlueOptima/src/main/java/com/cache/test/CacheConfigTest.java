@@ -0,0 +1,112 @@
+package com.cache.test;
+
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheConfig;
+import com.cache.CacheConfigWatcher;
+import com.cache.CacheManager;
+import com.cache.ExpiryMode;
+
+public class CacheConfigTest {
+
+	private static Properties loadConfiguration() throws Exception {
+		Properties properties = new Properties();
+		try (InputStream in = Thread.currentThread().getContextClassLoader()
+				.getResourceAsStream("resources/CacheConfig.properties")) {
+			properties.load(in);
+		}
+		return properties;
+	}
+
+	@Test
+	public void perCacheOverrideTest() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("maxSize", "100");
+		properties.setProperty("timeToLive", "2");
+		properties.setProperty("CleanupInterval", "1");
+		properties.setProperty("cache.users.maxSize", " 500 ");
+		properties.setProperty("cache.users.engine", "concurrent");
+		properties.setProperty("cache.users.weight", "2.5");
+
+		// The cache properties win over the global ones
+		CacheConfig users = CacheConfig.forCache(properties, "users");
+		assert (users.getMaxSize() == 500);
+		assert (users.getTimeToLive() == 2);
+		assert (users.getEngine().equals("concurrent"));
+		assert (users.getWeight() == 2.5);
+		assert (users.getMinSize() == 50);
+
+		CacheConfig orders = CacheConfig.forCache(properties, "orders");
+		assert (orders.getMaxSize() == 100);
+		assert (orders.getMinSize() == 10);
+		assert (orders.getEngine().equals("lru"));
+		assert (orders.getShards() == 1);
+		assert (orders.getExpiryMode() == ExpiryMode.AFTER_ACCESS);
+	}
+
+	@Test
+	public void liveReconfigurationTest() throws Exception {
+		CacheManager cacheManager = CacheManager.getCacheManager();
+		Cache<String> cache = cacheManager.<String> getCache("ConfigCache");
+
+		Properties properties = loadConfiguration();
+		properties.setProperty("cache.ConfigCache.maxSize", "3");
+		properties.setProperty("cache.ConfigCache.timeToLive", "7");
+		properties.setProperty("cache.ConfigCache.expiryMode", "AFTER_WRITE");
+		cacheManager.applyConfiguration(properties);
+
+		// The same cache instance is reconfigured in place
+		assert (cacheManager.<String> getCache("ConfigCache") == cache);
+		assert (cache.getCacheSize() == 3);
+		assert (cache.getTimeToLive() == 7);
+		assert (cache.getExpiryMode() == ExpiryMode.AFTER_WRITE);
+
+		// An invalid file is rejected as a whole
+		properties.setProperty("cache.ConfigCache.maxSize", "5");
+		properties.setProperty("cache.ConfigCache.shards", "0");
+		try {
+			cacheManager.applyConfiguration(properties);
+			assert (false);
+		} catch (IllegalArgumentException e) {
+			assert (cache.getCacheSize() == 3);
+		}
+		cacheManager.applyConfiguration(loadConfiguration());
+	}
+
+	@Test
+	public void configWatcherTest() throws Exception {
+		Path directory = Files.createTempDirectory("CacheConfig");
+		Path configFile = directory.resolve("CacheConfig.properties");
+		Files.write(configFile, "maxSize=10\n".getBytes(StandardCharsets.UTF_8));
+
+		BlockingQueue<Properties> versions = new LinkedBlockingQueue<Properties>();
+		CacheConfigWatcher watcher = new CacheConfigWatcher(configFile, versions::add);
+		watcher.start();
+		try {
+			// Other files of the directory are ignored
+			Files.write(directory.resolve("other.properties"), "maxSize=1\n".getBytes(StandardCharsets.UTF_8));
+			try (Writer writer = Files.newBufferedWriter(configFile, StandardCharsets.UTF_8)) {
+				writer.write("maxSize=20\n");
+				writer.flush();
+				writer.write("cache.users.maxSize=30\n");
+			}
+			Properties properties = versions.poll(10, TimeUnit.SECONDS);
+			assert (properties != null);
+			assert (properties.getProperty("maxSize").equals("20"));
+			assert (properties.getProperty("cache.users.maxSize").equals("30"));
+		} finally {
+			watcher.shutdown();
+		}
+	}
+}
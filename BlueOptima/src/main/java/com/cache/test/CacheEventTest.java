@@ -0,0 +1,89 @@
+package com.cache.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheEvent;
+import com.cache.CacheKey;
+import com.cache.ConcurrentLRUCache;
+import com.cache.RemovalCause;
+import com.cache.ShardedCache;
+
+public class CacheEventTest {
+
+	@Test
+	public void removalCauseTest() throws Exception {
+		List<Cache<String>> caches = new ArrayList<Cache<String>>();
+		caches.add(new ConcurrentLRUCache<String>("EventCache", 2, 0));
+		caches.add(new ShardedCache<String>("EventCache", 2, 0, 1));
+		for (Cache<String> cache : caches) {
+			List<String> removals = new ArrayList<String>();
+			cache.setEventExecutor(Runnable::run);
+			cache.addRemovalListener((element, cause) -> removals.add(element.getValue() + ":" + cause));
+
+			cache.insert(new CacheElement<String>(new CacheKey("1"), "String1"));
+			cache.insert(new CacheElement<String>(new CacheKey("2"), "String2"));
+			cache.insert(new CacheElement<String>(new CacheKey("3"), "String3"));
+			cache.insert(new CacheElement<String>(new CacheKey("2"), "String2b"));
+			cache.remove(new CacheKey("3"));
+			cache.setExpiry((key, value) -> 50);
+			cache.insert(new CacheElement<String>(new CacheKey("4"), "String4"));
+			Thread.sleep(100);
+			assert (cache.get(new CacheKey("4")) == null);
+
+			// Every removal is reported once, with its cause
+			assert (removals.size() == 4);
+			assert (removals.get(0).equals("String1:" + RemovalCause.SIZE));
+			assert (removals.get(1).equals("String2:" + RemovalCause.REPLACED));
+			assert (removals.get(2).equals("String3:" + RemovalCause.EXPLICIT));
+			assert (removals.get(3).equals("String4:" + RemovalCause.EXPIRED));
+		}
+	}
+
+	@Test
+	public void asyncBatchTest() throws Exception {
+		Cache<Integer> cache = new ConcurrentLRUCache<Integer>("EventCache", 100, 0);
+		CountDownLatch delivered = new CountDownLatch(900);
+		AtomicInteger batches = new AtomicInteger();
+		List<CacheEvent<Integer>> events = new ArrayList<CacheEvent<Integer>>();
+		Thread caller = Thread.currentThread();
+		cache.addEventListener(batch -> {
+			// The listeners run on the executor, never concurrently
+			assert (Thread.currentThread() != caller);
+			batches.incrementAndGet();
+			events.addAll(batch);
+			for (int i = 0; i < batch.size(); i++) {
+				delivered.countDown();
+			}
+		});
+
+		for (int i = 0; i < 500; i++) {
+			cache.insert(new CacheElement<Integer>(new CacheKey(String.valueOf(i % 200)), i));
+		}
+		assert (delivered.await(10, TimeUnit.SECONDS));
+
+		// The events of each key arrive in the order they happened
+		// 500 insertions evicting 400 elements
+		int inserted = 0;
+		int[] lastValue = new int[200];
+		for (CacheEvent<Integer> event : events) {
+			if (event.getType() == CacheEvent.Type.REMOVED) {
+				assert (event.getCause() == RemovalCause.SIZE);
+				continue;
+			}
+			inserted++;
+			int value = event.getElement().getValue();
+			assert (value >= lastValue[value % 200]);
+			lastValue[value % 200] = value;
+		}
+		assert (inserted == 500);
+		assert (batches.get() <= events.size());
+	}
+}
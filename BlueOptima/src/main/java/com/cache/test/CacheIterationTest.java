@@ -0,0 +1,137 @@
+package com.cache.test;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.ConcurrentLRUCache;
+import com.cache.ShardedCache;
+
+public class CacheIterationTest {
+
+	@Test
+	public void iterationKeepsLruOrderTest() throws Exception {
+		Cache<Integer> cache = new ShardedCache<Integer>("IterationCache", 3, 0, 1);
+		for (int i = 1; i <= 3; i++) {
+			cache.insert(new CacheElement<Integer>(new CacheKey(String.valueOf(i)), i));
+		}
+
+		// Reading every element is not an access, the first one is still evicted
+		int count = 0;
+		for (CacheElement<Integer> cacheElement : cache) {
+			count += cacheElement.getValue() > 0 ? 1 : 0;
+		}
+		assert (count == 3);
+		cache.insert(new CacheElement<Integer>(new CacheKey("4"), 4));
+		assert (cache.get(new CacheKey("1")) == null);
+		assert (cache.get(new CacheKey("2")) != null);
+	}
+
+	@Test
+	public void concurrentModificationTest() throws Exception {
+		Cache<Integer> cache = new ShardedCache<Integer>("IterationCache", 100000, 0, 1);
+		for (int i = 0; i < 5000; i++) {
+			cache.insert(new CacheElement<Integer>(new CacheKey(String.valueOf(i)), i));
+		}
+
+		// Remove, access and insert elements while the traversal is under way
+		Map<Integer, Integer> seen = new HashMap<Integer, Integer>();
+		Iterator<CacheElement<Integer>> itr = cache.iterator();
+		int step = 0;
+		while (itr.hasNext()) {
+			int value = itr.next().getValue();
+			seen.merge(value, 1, Integer::sum);
+			if (step < 2500) {
+				cache.remove(new CacheKey(String.valueOf(2 * step + 1)));
+				cache.get(new CacheKey(String.valueOf(4999 - 2 * step)));
+				cache.insert(new CacheElement<Integer>(new CacheKey(String.valueOf(5000 + step)), 5000 + step));
+			}
+			step++;
+		}
+		for (int i = 0; i < 5000; i += 2) {
+			assert (seen.get(i) == 1);
+		}
+		for (Integer value : seen.keySet()) {
+			assert (value < 5000);
+		}
+	}
+
+	@Test
+	public void expiredElementsSkippedTest() throws Exception {
+		Cache<Integer> cache = new ConcurrentLRUCache<Integer>("IterationCache", 1000, 0);
+		cache.setExpiry((key, value) -> value % 2 == 0 ? 50 : 0);
+		for (int i = 0; i < 100; i++) {
+			cache.insert(new CacheElement<Integer>(new CacheKey(String.valueOf(i)), i));
+		}
+
+		Thread.sleep(100);
+		assert (cache.stream().count() == 50);
+		assert (cache.stream().allMatch(e -> e.getValue() % 2 == 1));
+	}
+
+	@Test
+	public void sharedElementsTest() throws Exception {
+		// The same elements held by two caches, as by a near-cache and a partition
+		Cache<Integer> first = new ShardedCache<Integer>("IterationCache", 100, 0, 1);
+		Cache<Integer> second = new ShardedCache<Integer>("IterationCache", 100, 0, 1);
+		for (int i = 0; i < 100; i++) {
+			CacheElement<Integer> cacheElement = new CacheElement<Integer>(new CacheKey(String.valueOf(i)), i);
+			first.insert(cacheElement);
+			second.insert(cacheElement);
+		}
+
+		for (int i = 0; i < 100; i += 2) {
+			first.remove(new CacheKey(String.valueOf(i)));
+		}
+		assert (first.stream().count() == 50);
+		assert (second.stream().count() == 100);
+		for (int i = 1; i < 100; i += 2) {
+			second.remove(new CacheKey(String.valueOf(i)));
+		}
+		assert (first.stream().count() == 50);
+		assert (second.stream().allMatch(e -> e.getValue() % 2 == 0));
+		assert (second.stream().count() == 50);
+
+		// Each cache schedules the element at its own expiration time, and
+		// forgets it once removed, so nothing holds it any longer
+		Cache<Integer> near = new ConcurrentLRUCache<Integer>("IterationCache", 100, 0);
+		Cache<Integer> partition = new ConcurrentLRUCache<Integer>("IterationCache", 100, 0);
+		near.setExpiry((key, value) -> 60000);
+		partition.setExpiry((key, value) -> 120000);
+		CacheElement<Integer> cacheElement = new CacheElement<Integer>(new CacheKey("shared"), 1000);
+		near.insert(cacheElement);
+		partition.insert(cacheElement);
+		WeakReference<CacheElement<Integer>> reference = new WeakReference<CacheElement<Integer>>(cacheElement);
+		cacheElement = null;
+		near.remove(new CacheKey("shared"));
+		partition.remove(new CacheKey("shared"));
+		for (int i = 0; i < 20 && reference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assert (reference.get() == null) : "the expiry index of a cache still holds a removed element";
+	}
+
+	@Test
+	public void parallelStreamTest() throws Exception {
+		Cache<Integer> sharded = new ShardedCache<Integer>("IterationCache", 20000, 0, 4);
+		Cache<Integer> concurrent = new ConcurrentLRUCache<Integer>("IterationCache", 20000, 0);
+		long expected = 0;
+		for (int i = 0; i < 10000; i++) {
+			sharded.insert(new CacheElement<Integer>(new CacheKey(String.valueOf(i)), i));
+			concurrent.insert(new CacheElement<Integer>(new CacheKey(String.valueOf(i)), i));
+			expected += i;
+		}
+
+		assert (sharded.parallelStream().mapToLong(e -> e.getValue()).sum() == expected);
+		assert (sharded.parallelStream().count() == 10000);
+		assert (concurrent.parallelStream().mapToLong(e -> e.getValue()).sum() == expected);
+		assert (concurrent.parallelStream().distinct().count() == 10000);
+	}
+}
@@ -0,0 +1,90 @@
+package com.cache.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.ConcurrentLRUCache;
+import com.cache.KeyInterner;
+import com.cache.ShardedCache;
+
+public class CacheKeyTest {
+
+	@Test
+	public void compositeKeyTest() throws Exception {
+		checkCompositeKeys(new ShardedCache<String>("KeyCache", 100, 0, 4));
+		checkCompositeKeys(new ConcurrentLRUCache<String>("KeyCache", 100, 0));
+		assert (CacheKey.of("tenant1", 42L).getKey().equals("tenant1:42"));
+		assert (CacheKey.of("a", 1, "b").getKey().equals("a:1:b"));
+	}
+
+	/**
+	 * Check that composite keys find their own elements only.
+	 */
+	private static void checkCompositeKeys(Cache<String> cache) throws Exception {
+		cache.insert(new CacheElement<String>(CacheKey.of("tenant1", 42L), "a"));
+		cache.insert(new CacheElement<String>(CacheKey.of("tenant2", 42L), "b"));
+		cache.insert(new CacheElement<String>(CacheKey.of("tenant1", 42L, "profile"), "c"));
+
+		// Equal parts make equal keys, keys of different kinds never are
+		assert (cache.get(CacheKey.of("tenant1", 42L)).getValue().equals("a"));
+		assert (cache.get(CacheKey.of("tenant2", 42L)).getValue().equals("b"));
+		assert (cache.get(CacheKey.of("tenant1", 42L, "profile")).getValue().equals("c"));
+		assert (cache.get(new CacheKey("tenant1:42")) == null);
+		assert (cache.get(CacheKey.of("tenant1", (Object) 42L)) == null);
+	}
+
+	@Test
+	public void mixedHashTest() throws Exception {
+		// Sequential keys spread over the low bits used by the hash tables
+		Set<Integer> buckets = new HashSet<Integer>();
+		for (int i = 0; i < 64; i++) {
+			buckets.add(CacheKey.of("tenant", i).hashCode() & 63);
+		}
+		assert (buckets.size() > 32);
+
+		// The hash code is computed again for a deserialized key
+		CacheKey[] keys = { new CacheKey("key"), CacheKey.of("tenant", 7L), CacheKey.of("a", 1, "b") };
+		for (CacheKey key : keys) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(key);
+			out.close();
+			CacheKey copy = (CacheKey) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+					.readObject();
+			assert (copy.equals(key) && copy.hashCode() == key.hashCode());
+		}
+	}
+
+	@Test
+	public void enumPartTest() throws Exception {
+		// An enum part is hashed by name, so that every JVM routes the key alike
+		CacheKey key = CacheKey.of("tenant", TimeUnit.SECONDS);
+		assert (key.hashCode() == CacheKey.of("tenant", "SECONDS").hashCode());
+		assert (!key.equals(CacheKey.of("tenant", "SECONDS")));
+		assert (key.equals(CacheKey.of("tenant", TimeUnit.SECONDS)));
+		assert (key.getKey().equals("tenant:SECONDS"));
+	}
+
+	@Test
+	public void internTest() throws Exception {
+		KeyInterner interner = new KeyInterner(2);
+		CacheKey first = interner.intern(CacheKey.of("tenant", 1L));
+		assert (interner.intern(CacheKey.of("tenant", 1L)) == first);
+		interner.intern(new CacheKey("other"));
+
+		// Once full, new keys are returned as they are
+		CacheKey third = CacheKey.of("tenant", 3L);
+		assert (interner.intern(third) == third);
+		assert (interner.size() == 2);
+	}
+}
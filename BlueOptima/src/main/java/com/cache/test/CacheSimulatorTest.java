@@ -0,0 +1,73 @@
+package com.cache.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.CacheSimulator;
+import com.cache.ConcurrentLRUCache;
+import com.cache.TraceFormat;
+import com.cache.TraceRecorder;
+
+public class CacheSimulatorTest {
+
+	@Test
+	public void traceRecordingTest() throws Exception {
+		for (TraceFormat format : TraceFormat.values()) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			TraceRecorder recorder = new TraceRecorder(out, format);
+			Cache<String> cache = new ConcurrentLRUCache<String>("TracedCache", 100, 0);
+			cache.startRecording(recorder);
+
+			// A miss followed by the insertion filling it is one access
+			for (int i = 0; i < 10; i++) {
+				CacheKey cacheKey = new CacheKey(String.valueOf(i % 4));
+				if (cache.get(cacheKey) == null) {
+					cache.insert(new CacheElement<String>(cacheKey, "String" + i));
+				}
+			}
+			cache.insert(new CacheElement<String>(new CacheKey("5"), "String5"));
+			assert (cache.stopRecording() == recorder);
+			cache.get(new CacheKey("6"));
+			recorder.close();
+			assert (recorder.getRecordCount() == 11);
+
+			List<CacheKey> trace = format.read(new ByteArrayInputStream(out.toByteArray()));
+			assert (trace.size() == 11);
+			assert (trace.get(0).equals(trace.get(4)));
+			assert (new CacheSimulator(trace).getDistinctKeyCount() == 5);
+		}
+	}
+
+	@Test
+	public void hitRateCurveTest() throws Exception {
+		// A loop over 100 keys only hits once they all fit
+		List<CacheKey> trace = new ArrayList<CacheKey>();
+		for (int i = 0; i < 1000; i++) {
+			trace.add(new CacheKey(String.valueOf(i % 100)));
+		}
+		CacheSimulator simulator = new CacheSimulator(trace);
+		int[] sizes = CacheSimulator.sizes(10, 1000, 5);
+		assert (Arrays.equals(sizes, new int[] { 10, 32, 100, 316, 1000 }));
+
+		Map<CacheSimulator.Policy, SortedMap<Integer, Double>> curves = simulator
+				.simulate(Arrays.asList(CacheSimulator.Policy.values()), sizes);
+		SortedMap<Integer, Double> lru = curves.get(CacheSimulator.Policy.LRU);
+		assert (lru.get(32) == 0.0);
+		assert (lru.get(100) == 0.9);
+		assert (lru.get(1000) == 0.9);
+		for (SortedMap<Integer, Double> curve : curves.values()) {
+			assert (curve.size() == sizes.length);
+			assert (curve.get(1000) == 0.9);
+		}
+	}
+}
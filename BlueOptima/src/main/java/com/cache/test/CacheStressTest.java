@@ -0,0 +1,188 @@
+package com.cache.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.CacheManager;
+import com.cache.ConcurrentLRUCache;
+import com.cache.ShardedCache;
+
+/**
+ * Hammers the cache engines with concurrent inserts, lookups, removals,
+ * expirations, traversals and backups, and checks what a linearizable cache
+ * guarantees while it runs:
+ * <ul>
+ * <li>no operation throws, in particular no traversal racing with writers;
+ * <li>the number of elements exceeds the cache size by no more than the
+ * inserts in flight, and not at all once the writers have stopped;
+ * <li>no update is lost: every key is written by a single thread with
+ * increasing versions, the writer reads back the version it has just written
+ * or nothing, no reader sees the version of a key go back or a version not yet
+ * written, and the last version of every key is the one left in the cache.
+ * </ul>
+ * Some elements expire after a few milliseconds, so that expiry races with the
+ * other operations without the test waiting for it. Run with
+ * -Dcache.stressMillis=60000 to stress every engine for longer than a second.
+ */
+public class CacheStressTest {
+
+	private static final long DURATION = Long.getLong("cache.stressMillis", 1000);
+
+	private static final int WRITERS = 4;
+
+	private static final int READERS = 4;
+
+	@Test
+	public void lruCacheTest() throws Exception {
+		// The cache size is 10
+		Cache<Long> cache = CacheManager.getCacheManager().<Long> getCache("StressCache");
+		stress(cache, 0);
+	}
+
+	@Test
+	public void concurrentLRUCacheTest() throws Exception {
+		stress(new ConcurrentLRUCache<Long>("StressCache", 100, 0), 0);
+	}
+
+	@Test
+	public void shardedCacheTest() throws Exception {
+		// Every shard rounds its share of the cache size up
+		stress(new ShardedCache<Long>("StressCache", 100, 0, 4), 4);
+	}
+
+	/**
+	 * Run the writers, the readers and a maintenance task against the cache
+	 * for the test duration, then check the final state of every key.
+	 *
+	 * @param rounding
+	 *            the number of elements the engine may hold above the cache
+	 *            size when idle
+	 */
+	private static void stress(Cache<Long> cache, int rounding) throws Exception {
+		int keys = cache.getCacheSize() * 4;
+		int maxSize = cache.getCacheSize() + rounding;
+		AtomicLongArray written = new AtomicLongArray(keys);
+		cache.setExpiry((key, value) -> value / keys % 4 == 0 ? 1 + value / keys % 5 : 0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS + 1);
+		long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DURATION);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int i = 0; i < WRITERS; i++) {
+			int writer = i;
+			futures.add(executor.submit(() -> write(cache, writer, keys, written, end)));
+		}
+		for (int i = 0; i < READERS; i++) {
+			futures.add(executor.submit(() -> read(cache, keys, written, end)));
+		}
+		futures.add(executor.submit(() -> maintain(cache, keys, maxSize + WRITERS, end)));
+		for (Future<?> future : futures) {
+			future.get(DURATION + 60000, TimeUnit.MILLISECONDS);
+		}
+		executor.shutdown();
+
+		// Once quiet, the cache holds at most its size and the last versions
+		assert (cache.getValues().size() <= maxSize);
+		for (int key = 0; key < keys; key++) {
+			CacheElement<Long> cacheElement = cache.get(new CacheKey("key" + key));
+			assert (cacheElement == null || cacheElement.getValue() == written.get(key) * keys + key) : "key" + key
+					+ " lost an update";
+		}
+	}
+
+	/**
+	 * Insert increasing versions of the keys owned by a writer, and remove
+	 * some of them, reading every change back.
+	 */
+	private static Void write(Cache<Long> cache, int writer, int keys, AtomicLongArray written, long end) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (System.nanoTime() < end) {
+			int key = random.nextInt(keys / WRITERS) * WRITERS + writer;
+			CacheKey cacheKey = new CacheKey("key" + key);
+			if (random.nextInt(10) < 8) {
+				long value = (written.get(key) + 1) * keys + key;
+				written.incrementAndGet(key);
+				cache.insert(new CacheElement<Long>(cacheKey, value));
+				CacheElement<Long> cacheElement = cache.get(cacheKey);
+				assert (cacheElement == null || cacheElement.getValue() == value) : cacheKey + " lost an update";
+			} else {
+				// Only the owner writes the key, so nothing can put it back
+				cache.remove(cacheKey);
+				assert (cache.get(cacheKey) == null) : cacheKey + " survived its removal";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Look up random keys, checking that the versions seen only move forward.
+	 */
+	private static Void read(Cache<Long> cache, int keys, AtomicLongArray written, long end) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long[] seen = new long[keys];
+		while (System.nanoTime() < end) {
+			int key = random.nextInt(keys);
+			CacheElement<Long> cacheElement = cache.get(new CacheKey("key" + key));
+			if (cacheElement != null) {
+				long value = cacheElement.getValue();
+				long version = value / keys;
+				assert (value % keys == key) : "key" + key + " holds the value of another key";
+				assert (version >= seen[key]) : "key" + key + " went back from version " + seen[key] + " to " + version;
+				assert (version <= written.get(key)) : "key" + key + " holds a version not written yet";
+				seen[key] = version;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Remove the expired elements, traverse the cache and back it up while the
+	 * writers run, checking the size and the elements seen.
+	 */
+	private static Void maintain(Cache<Long> cache, int keys, int maxSize, long end) throws Exception {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (System.nanoTime() < end) {
+			switch (random.nextInt(4)) {
+			case 0:
+				cache.removeAllExpired();
+				break;
+			case 1:
+				List<CacheElement<Long>> values = cache.getValues();
+				assert (values.size() <= maxSize) : values.size() + " elements in a cache of " + maxSize;
+				values.forEach(cacheElement -> checkElement(cacheElement, keys));
+				break;
+			case 2:
+				for (CacheElement<Long> cacheElement : cache) {
+					checkElement(cacheElement, keys);
+				}
+				break;
+			default:
+				// Serialize the elements as the cache backup does
+				ObjectOutputStream out = new ObjectOutputStream(new ByteArrayOutputStream());
+				out.writeObject(cache.getValues());
+				out.close();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Check that an element holds a value written for its key.
+	 */
+	private static void checkElement(CacheElement<Long> cacheElement, int keys) {
+		int key = Integer.parseInt(cacheElement.getId().getKey().substring(3));
+		assert (cacheElement.getValue() % keys == key) : cacheElement.getId() + " holds the value of another key";
+	}
+}
@@ -1,7 +1,12 @@
 package com.cache.test;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -10,6 +15,7 @@ import com.cache.Cache;
 import com.cache.CacheElement;
 import com.cache.CacheKey;
 import com.cache.CacheManager;
+import com.cache.CacheReference;
 import com.exception.ConfFileNotFoundException;
 
 public class CacheTest {
@@ -143,4 +149,39 @@ public class CacheTest {
 		assert (!(floatCache.toString().equals(stringCache.toString())));
 	}
 
+	@Test
+	public void cacheCreateOnceTest() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<Cache<Integer>>> futures = new ArrayList<Future<Cache<Integer>>>();
+		for (int i = 0; i < 100; i++) {
+			futures.add(executor.submit(() -> cacheManager.<Integer> getCache("IntegerCache")));
+		}
+
+		// Every thread gets the same instance
+		Cache<Integer> integerCache = cacheManager.<Integer> getCache("IntegerCache");
+		for (Future<Cache<Integer>> future : futures) {
+			assert (future.get() == integerCache);
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void cacheRemoveTest() {
+		CacheReference<Long> longCacheReference = cacheManager.<Long> getCacheReference("LongCache");
+		Cache<Long> longCache = longCacheReference.get();
+		longCache.insert(new CacheElement<Long>(new CacheKey("1"), 1L));
+		assert (longCacheReference.get() == longCache);
+
+		// The removed cache is closed and emptied
+		assert (cacheManager.removeCache("LongCache"));
+		assert (longCache.isClosed());
+		assert (longCache.getValues().isEmpty());
+		assert (!cacheManager.removeCache("LongCache"));
+
+		// The reference resolves a new cache
+		Cache<Long> newLongCache = longCacheReference.get();
+		assert (newLongCache != longCache);
+		assert (newLongCache.get(new CacheKey("1")) == null);
+	}
+
 }
@@ -0,0 +1,153 @@
+package com.cache.test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.CacheManager;
+import com.cache.CacheWarmer;
+import com.cache.CacheWriter;
+import com.cache.ConcurrentLRUCache;
+import com.cache.TraceFormat;
+
+public class CacheWarmerTest {
+
+	/**
+	 * Return the keys key0 to keyN-1.
+	 */
+	private static List<CacheKey> keys(int count) {
+		List<CacheKey> keys = new ArrayList<CacheKey>();
+		for (int i = 0; i < count; i++) {
+			keys.add(new CacheKey("key" + i));
+		}
+		return keys;
+	}
+
+	@Test
+	public void warmUpTest() throws Exception {
+		Cache<String> cache = new ConcurrentLRUCache<String>("WarmCache", 100, 0);
+		cache.setNegativeCaching(10, 60);
+		AtomicInteger writes = new AtomicInteger();
+		cache.setCacheWriter(new CacheWriter<String>() {
+			@Override
+			public void write(CacheElement<String> cacheElement) {
+				writes.incrementAndGet();
+			}
+
+			@Override
+			public void delete(CacheKey cacheKey) {
+			}
+		});
+		cache.insert(new CacheElement<String>(new CacheKey("key0"), "restored"));
+		List<CacheKey> keys = keys(20);
+		keys.add(new CacheKey("absent"));
+		keys.add(new CacheKey("broken"));
+
+		CacheWarmer<String> warmer = new CacheWarmer<String>(cache, cacheKey -> {
+			if (cacheKey.getKey().equals("broken")) {
+				throw new IllegalStateException("store unavailable");
+			}
+			return cacheKey.getKey().equals("absent") ? null : "loaded" + cacheKey.getKey();
+		}, 4, 0);
+		assert (warmer.warmUp(keys) == 19);
+
+		// The key already in the cache is kept, the absent key is remembered
+		assert (cache.get(new CacheKey("key0")).getValue().equals("restored"));
+		assert (cache.get(new CacheKey("key19")).getValue().equals("loadedkey19"));
+		assert (cache.isKnownAbsent(new CacheKey("absent")));
+		assert (warmer.getAbsentCount() == 1 && warmer.getFailedCount() == 1);
+
+		// The loaded values are not written back to the store
+		assert (writes.get() == 1);
+	}
+
+	@Test
+	public void otherCacheWriteThroughTest() throws Exception {
+		Cache<String> audit = new ConcurrentLRUCache<String>("AuditCache", 100, 0);
+		AtomicInteger writes = new AtomicInteger();
+		audit.setCacheWriter(new CacheWriter<String>() {
+			@Override
+			public void write(CacheElement<String> cacheElement) {
+				writes.incrementAndGet();
+			}
+
+			@Override
+			public void delete(CacheKey cacheKey) {
+			}
+		});
+		// The expiry function runs on the loading thread and inserts in another cache
+		Cache<String> cache = new ConcurrentLRUCache<String>("WarmCache", 100, 0);
+		cache.setExpiry((key, value) -> {
+			audit.insert(new CacheElement<String>(key, value));
+			return 0;
+		});
+
+		CacheWarmer<String> warmer = new CacheWarmer<String>(cache, cacheKey -> "loaded", 2, 0);
+		assert (warmer.warmUp(keys(10)) == 10);
+
+		// Only the warmed cache skips its writer
+		assert (writes.get() == 10);
+	}
+
+	@Test
+	public void boundedWarmUpTest() throws Exception {
+		Cache<Integer> cache = new ConcurrentLRUCache<Integer>("WarmCache", 100, 0);
+		AtomicInteger loading = new AtomicInteger();
+		AtomicInteger maxLoading = new AtomicInteger();
+		CacheWarmer<Integer> warmer = new CacheWarmer<Integer>(cache, cacheKey -> {
+			maxLoading.accumulateAndGet(loading.incrementAndGet(), Math::max);
+			Thread.sleep(10);
+			loading.decrementAndGet();
+			return 1;
+		}, 3, 100);
+
+		// 20 keys at 100 per second take at least 190 milliseconds
+		long start = System.nanoTime();
+		assert (warmer.warmUp(keys(20)) == 20);
+		assert (System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+		assert (maxLoading.get() <= 3);
+	}
+
+	@Test
+	public void cacheManagerWarmUpTest() throws Exception {
+		// The cache size is 10, so only the 10 hottest keys are loaded
+		Collection<CacheKey> keys = keys(50);
+		int loaded = CacheManager.getCacheManager().<String> warmUp("WarmCache", keys,
+				cacheKey -> cacheKey.getKey(), 4, 0);
+		assert (loaded == 10);
+		Cache<String> cache = CacheManager.getCacheManager().<String> getCache("WarmCache");
+		assert (cache.get(new CacheKey("key9")) != null);
+		assert (cache.get(new CacheKey("key10")) == null);
+	}
+
+	@Test
+	public void hottestKeysTest() throws Exception {
+		CacheKey a = new CacheKey("a");
+		CacheKey b = new CacheKey("b");
+		CacheKey c = new CacheKey("c");
+		List<CacheKey> trace = Arrays.asList(a, b, c, b, c, c);
+		assert (CacheWarmer.hottestKeys(trace, 2).equals(Arrays.asList(c, b)));
+
+		// Composite keys are rebuilt from the string form a text trace holds
+		byte[] text = "tenant:7\ntenant:42\nbroken\ntenant:42\nbroken\nbroken\n".getBytes(StandardCharsets.UTF_8);
+		trace = TraceFormat.TEXT.read(new ByteArrayInputStream(text));
+		List<CacheKey> keys = CacheWarmer.hottestKeys(trace, 3, key -> {
+			int separator = key.indexOf(':');
+			if (separator < 0) {
+				return null;
+			}
+			return CacheKey.of(key.substring(0, separator), Long.parseLong(key.substring(separator + 1)));
+		});
+		assert (keys.equals(Arrays.asList(CacheKey.of("tenant", 42L), CacheKey.of("tenant", 7L))));
+	}
+}
@@ -0,0 +1,192 @@
+package com.cache.test;
+
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.CacheManager;
+import com.cache.CacheWriter;
+import com.cache.ConcurrentLRUCache;
+import com.cache.ValueStrength;
+import com.cache.WriteBehindWriter;
+
+public class CacheWriterTest {
+
+	/**
+	 * A store counting its writes.
+	 */
+	static class RecordingStore implements CacheWriter<String> {
+
+		final Map<String, String> data = new ConcurrentHashMap<String, String>();
+		final AtomicInteger writes = new AtomicInteger();
+		final AtomicInteger batches = new AtomicInteger();
+		volatile boolean failing;
+		volatile CountDownLatch written = new CountDownLatch(0);
+
+		@Override
+		public void write(CacheElement<String> cacheElement) {
+			if (failing) {
+				throw new IllegalStateException("Store unavailable");
+			}
+			writes.incrementAndGet();
+			data.put(cacheElement.getId().getKey(), cacheElement.getValue());
+			written.countDown();
+		}
+
+		@Override
+		public void delete(CacheKey cacheKey) {
+			data.remove(cacheKey.getKey());
+		}
+
+		@Override
+		public void writeAll(Collection<CacheElement<String>> cacheElements) {
+			batches.incrementAndGet();
+			CacheWriter.super.writeAll(cacheElements);
+		}
+	}
+
+	@Test
+	public void restoreSkipsWriterTest() throws Exception {
+		// Write a backup where the cache manager looks for it
+		Properties properties = new Properties();
+		try (InputStream in = Thread.currentThread().getContextClassLoader()
+				.getResourceAsStream("resources/CacheConfig.properties")) {
+			properties.load(in);
+		}
+		Path backupPath = Paths.get(properties.getProperty("BackupPath"));
+		Files.createDirectories(backupPath);
+		List<CacheElement<String>> backup = new ArrayList<CacheElement<String>>();
+		backup.add(new CacheElement<String>(new CacheKey("1"), "stale1"));
+		backup.add(new CacheElement<String>(new CacheKey("2"), "stale2"));
+		try (ObjectOutputStream out = new ObjectOutputStream(
+				new FileOutputStream(backupPath.resolve("RestoreWriterCache.ser").toFile()))) {
+			out.writeObject(backup);
+		}
+
+		RecordingStore store = new RecordingStore();
+		CacheManager cacheManager = CacheManager.getCacheManager();
+		cacheManager.<String> getCache("RestoreWriterCache").setCacheWriter(store);
+		Cache<String> cache = cacheManager.<String> restoreCache("RestoreWriterCache");
+
+		// The restored elements may be older than the store, so are not written
+		assert (cache.get(new CacheKey("2")).getValue().equals("stale2"));
+		assert (store.writes.get() == 0 && store.data.isEmpty());
+		cacheManager.removeCache("RestoreWriterCache");
+	}
+
+	@Test
+	public void writeThroughTest() {
+		RecordingStore store = new RecordingStore();
+		Cache<String> cache = new ConcurrentLRUCache<String>("WriterCache", 100, 0);
+		cache.setCacheWriter(store);
+
+		cache.insert(new CacheElement<String>(new CacheKey("1"), "String1"));
+		cache.insert(new CacheElement<String>(new CacheKey("2"), "String2"));
+		cache.remove(new CacheKey("1"));
+		assert (store.data.size() == 1);
+		assert (store.data.get("2").equals("String2"));
+
+		// A failing store leaves the cache unchanged
+		store.failing = true;
+		try {
+			cache.insert(new CacheElement<String>(new CacheKey("3"), "String3"));
+			assert (false);
+		} catch (IllegalStateException e) {
+			assert (cache.get(new CacheKey("3")) == null);
+		}
+	}
+
+	@Test
+	public void writeBehindCoalescingTest() {
+		RecordingStore store = new RecordingStore();
+		WriteBehindWriter<String> writer = new WriteBehindWriter<String>(store, 1000, 1, TimeUnit.MINUTES);
+		Cache<String> cache = new ConcurrentLRUCache<String>("WriterCache", 100, 0);
+		cache.setCacheWriter(writer);
+
+		for (int i = 0; i < 1000; i++) {
+			cache.insert(new CacheElement<String>(new CacheKey("hot"), "String" + i));
+		}
+		cache.insert(new CacheElement<String>(new CacheKey("1"), "String1"));
+		cache.insert(new CacheElement<String>(new CacheKey("2"), "String2"));
+		cache.remove(new CacheKey("2"));
+		assert (store.writes.get() == 0);
+		assert (writer.getPendingCount() == 3);
+
+		// Closing the cache writes the latest change of every key once
+		cache.close();
+		assert (store.writes.get() == 2);
+		assert (store.batches.get() == 1);
+		assert (store.data.get("hot").equals("String999"));
+		assert (store.data.get("1").equals("String1"));
+		assert (!store.data.containsKey("2"));
+	}
+
+	@Test
+	public void writeBehindTriggerTest() throws Exception {
+		RecordingStore store = new RecordingStore();
+		Cache<String> cache = new ConcurrentLRUCache<String>("WriterCache", 100, 0);
+
+		// A full batch is written before the flush interval
+		cache.setCacheWriter(new WriteBehindWriter<String>(store, 10, 1, TimeUnit.MINUTES));
+		store.written = new CountDownLatch(10);
+		for (int i = 0; i < 10; i++) {
+			cache.insert(new CacheElement<String>(new CacheKey(String.valueOf(i)), "String" + i));
+		}
+		assert (store.written.await(5, TimeUnit.SECONDS));
+
+		// A partial batch is written after the flush interval
+		cache.setCacheWriter(new WriteBehindWriter<String>(store, 10, 100, TimeUnit.MILLISECONDS));
+		store.written = new CountDownLatch(1);
+		cache.insert(new CacheElement<String>(new CacheKey("10"), "String10"));
+		assert (store.written.await(5, TimeUnit.SECONDS));
+		assert (store.data.size() == 11);
+		cache.close();
+	}
+
+	@Test
+	public void writeBehindWeakValuesTest() {
+		RecordingStore store = new RecordingStore();
+		WriteBehindWriter<String> writer = new WriteBehindWriter<String>(store, 1000, 1, TimeUnit.MINUTES);
+		Cache<String> cache = new ConcurrentLRUCache<String>("WriterCache", 100, 0);
+		cache.setValueStrength(ValueStrength.WEAK);
+		cache.setCacheWriter(writer);
+		cache.insert(new CacheElement<String>(new CacheKey("1"), new String("String1")));
+
+		// The queued change keeps its value once the cached one is reclaimed
+		System.gc();
+		writer.flush();
+		assert ("String1".equals(store.data.get("1")));
+		cache.close();
+	}
+
+	@Test
+	public void replacedWriterTest() {
+		RecordingStore store = new RecordingStore();
+		WriteBehindWriter<String> writer = new WriteBehindWriter<String>(store, 1000, 1, TimeUnit.MINUTES);
+		Cache<String> cache = new ConcurrentLRUCache<String>("WriterCache", 100, 0);
+		cache.setCacheWriter(writer);
+		cache.insert(new CacheElement<String>(new CacheKey("1"), "String1"));
+
+		// The replaced writer writes the changes it was holding back
+		cache.setCacheWriter(store);
+		assert (writer.getPendingCount() == 0);
+		assert (store.data.get("1").equals("String1"));
+	}
+}
@@ -0,0 +1,68 @@
+package com.cache.test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.ConcurrentLRUCache;
+import com.cache.DeflateCodec;
+import com.cache.ShardedCache;
+
+public class CompressionTest {
+
+	/**
+	 * Build a JSON like string of the given number of records.
+	 */
+	private static String json(int records) {
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < records; i++) {
+			builder.append("{\"id\":").append(i).append(",\"name\":\"user").append(i)
+					.append("\",\"active\":true,\"roles\":[\"reader\",\"writer\"]},");
+		}
+		return builder.append("]").toString();
+	}
+
+	@Test
+	public void compressedStringTest() throws Exception {
+		Cache<String> cache = new ConcurrentLRUCache<String>("CompressedCache", 100, 0);
+		cache.setValueCompression(new DeflateCodec(), 1024);
+		String large = json(1000);
+		cache.insert(new CacheElement<String>(new CacheKey("large"), large));
+		cache.insert(new CacheElement<String>(new CacheKey("small"), "small"));
+
+		// Only the large value is compressed, both read back unchanged
+		assert (cache.get(new CacheKey("large")).isCompressed());
+		assert (!cache.get(new CacheKey("small")).isCompressed());
+		assert (cache.get(new CacheKey("large")).getValue().equals(large));
+		assert (cache.get(new CacheKey("small")).getValue().equals("small"));
+
+		assert (cache.getStats().getCompressionCount() == 1);
+		assert (cache.getStats().getCompressionRatio() > 5);
+		assert (cache.getStats().getDecompressionCount() == 1);
+	}
+
+	@Test
+	public void compressedBytesTest() throws Exception {
+		Cache<byte[]> cache = new ShardedCache<byte[]>("CompressedCache", 100, 0, 4);
+		cache.setValueCompression(new DeflateCodec(), 1024);
+		byte[] repetitive = new byte[64 * 1024];
+		Arrays.fill(repetitive, (byte) 7);
+		byte[] random = new byte[4096];
+		new Random(1).nextBytes(random);
+		cache.insert(new CacheElement<byte[]>(new CacheKey("repetitive"), repetitive));
+		cache.insert(new CacheElement<byte[]>(new CacheKey("random"), random));
+
+		// The value which doesn't get smaller is stored as it is
+		CacheElement<byte[]> element = cache.get(new CacheKey("repetitive"));
+		assert (element.isCompressed());
+		assert (Arrays.equals(element.getValue(), repetitive));
+		assert (element.getValue() != element.getValue());
+		assert (!cache.get(new CacheKey("random")).isCompressed());
+		assert (cache.get(new CacheKey("random")).getValue() == random);
+		assert (cache.getStats().getCompressionCount() == 2);
+	}
+}
@@ -0,0 +1,108 @@
+package com.cache.test;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.DistributedCache;
+import com.cache.LoopbackTransport;
+
+public class DistributedCacheTest {
+
+	private LoopbackTransport.Network network;
+
+	private DistributedCache<String> nodeA;
+
+	private DistributedCache<String> nodeB;
+
+	private DistributedCache<String> nodeC;
+
+	@Before
+	public void setUp() throws Exception {
+		network = new LoopbackTransport.Network();
+		nodeA = new DistributedCache<String>("Users", 100, 0, 10, new LoopbackTransport(network, "A"));
+		nodeB = new DistributedCache<String>("Users", 100, 0, 10, new LoopbackTransport(network, "B"));
+		nodeC = new DistributedCache<String>("Users", 100, 0, 10, new LoopbackTransport(network, "C"));
+	}
+
+	@Test
+	public void partitionTest() {
+		for (int i = 0; i < 30; i++) {
+			nodeA.insert(new CacheElement<String>(new CacheKey("user" + i), "User" + i));
+		}
+
+		// Every key is stored once, on its owner
+		int stored = nodeA.getValues().size() + nodeB.getValues().size() + nodeC.getValues().size();
+		assert (stored == 30);
+
+		for (int i = 0; i < 30; i++) {
+			CacheKey cacheKey = new CacheKey("user" + i);
+			assert (nodeA.getOwner(cacheKey).equals(nodeC.getOwner(cacheKey)));
+			assert (nodeB.get(cacheKey).getValue().equals("User" + i));
+		}
+	}
+
+	@Test
+	public void nearCacheInvalidationTest() {
+		CacheKey cacheKey = new CacheKey("user1");
+		nodeA.insert(new CacheElement<String>(cacheKey, "Alice"));
+
+		// Read on every node, populating the near-caches of the non owners
+		assert (nodeB.get(cacheKey).getValue().equals("Alice"));
+		assert (nodeC.get(cacheKey).getValue().equals("Alice"));
+
+		// An update on one node must not leave stale copies on the others
+		nodeC.insert(new CacheElement<String>(cacheKey, "Bob"));
+		assert (nodeA.get(cacheKey).getValue().equals("Bob"));
+		assert (nodeB.get(cacheKey).getValue().equals("Bob"));
+
+		nodeB.remove(cacheKey);
+		assert (nodeA.get(cacheKey) == null);
+		assert (nodeC.get(cacheKey) == null);
+	}
+
+	@Test
+	public void membershipChangeTest() {
+		for (int i = 0; i < 30; i++) {
+			nodeA.insert(new CacheElement<String>(new CacheKey("user" + i), "User" + i));
+		}
+
+		// A new node takes over part of the keys
+		DistributedCache<String> nodeD = new DistributedCache<String>("Users", 100, 0, 10,
+				new LoopbackTransport(network, "D"));
+		for (int i = 0; i < 30; i++) {
+			CacheKey cacheKey = new CacheKey("user" + i);
+			assert (nodeD.get(cacheKey).getValue().equals("User" + i));
+			assert (nodeA.get(cacheKey).getValue().equals("User" + i));
+		}
+		int stored = nodeA.getValues().size() + nodeB.getValues().size() + nodeC.getValues().size()
+				+ nodeD.getValues().size();
+		assert (stored == 30);
+	}
+
+	@Test
+	public void closeNodeTest() {
+		for (int i = 0; i < 30; i++) {
+			nodeA.insert(new CacheElement<String>(new CacheKey("user" + i), "User" + i));
+		}
+
+		// The closed node hands its keys over and owns none any more
+		nodeB.close();
+		for (int i = 0; i < 30; i++) {
+			CacheKey cacheKey = new CacheKey("user" + i);
+			assert (!nodeA.getOwner(cacheKey).equals("B"));
+			assert (nodeA.get(cacheKey).getValue().equals("User" + i));
+			assert (nodeC.get(cacheKey).getValue().equals("User" + i));
+		}
+		assert (nodeA.getValues().size() + nodeC.getValues().size() == 30);
+
+		// The keys inserted afterwards are served too
+		for (int i = 30; i < 60; i++) {
+			nodeC.insert(new CacheElement<String>(new CacheKey("user" + i), "User" + i));
+		}
+		for (int i = 30; i < 60; i++) {
+			assert (nodeA.get(new CacheKey("user" + i)).getValue().equals("User" + i));
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.cache.test;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.ConcurrentLRUCache;
+import com.cache.ExpiryMode;
+
+public class ExpiryTest {
+
+	@Test
+	public void perElementTimeToLiveTest() throws Exception {
+		Cache<String> cache = new ConcurrentLRUCache<String>("ExpiryCache", 100, 0);
+
+		// The time to live is computed from the value
+		cache.setExpiry((key, value) -> value.startsWith("short") ? 100 : 0);
+		cache.insert(new CacheElement<String>(new CacheKey("1"), "short1"));
+		cache.insert(new CacheElement<String>(new CacheKey("2"), "long2"));
+
+		Thread.sleep(150);
+		assert (cache.get(new CacheKey("1")) == null);
+		assert (cache.get(new CacheKey("2")).getValue().equals("long2"));
+	}
+
+	@Test
+	public void expireAfterWriteTest() throws Exception {
+		Cache<String> cache = new ConcurrentLRUCache<String>("ExpiryCache", 100, 0);
+		cache.setExpiryMode(ExpiryMode.AFTER_WRITE);
+		cache.setExpiry((key, value) -> 200);
+		cache.insert(new CacheElement<String>(new CacheKey("1"), "String1"));
+
+		// Accessing the element does not extend its life
+		Thread.sleep(120);
+		assert (cache.get(new CacheKey("1")) != null);
+		Thread.sleep(120);
+		assert (cache.get(new CacheKey("1")) == null);
+	}
+
+	@Test
+	public void expireAfterAccessTest() throws Exception {
+		Cache<String> cache = new ConcurrentLRUCache<String>("ExpiryCache", 100, 0);
+		cache.setExpiryMode(ExpiryMode.AFTER_ACCESS);
+		cache.setExpiry((key, value) -> 200);
+		cache.insert(new CacheElement<String>(new CacheKey("1"), "String1"));
+
+		// Every access extends the life of the element
+		Thread.sleep(120);
+		assert (cache.get(new CacheKey("1")) != null);
+		Thread.sleep(120);
+		assert (cache.get(new CacheKey("1")) != null);
+		Thread.sleep(250);
+		assert (cache.get(new CacheKey("1")) == null);
+	}
+
+	@Test
+	public void removeAllExpiredTest() throws Exception {
+		Cache<Integer> cache = new ConcurrentLRUCache<Integer>("ExpiryCache", 1000, 0);
+		cache.setExpiry((key, value) -> value % 2 == 0 ? 50 : 0);
+		for (int i = 0; i < 100; i++) {
+			cache.insert(new CacheElement<Integer>(new CacheKey(String.valueOf(i)), i));
+		}
+
+		// Only the elements with a time to live are evicted
+		Thread.sleep(100);
+		cache.removeAllExpired();
+		assert (cache.getValues().size() == 50);
+		for (CacheElement<Integer> cacheElement : cache.getValues()) {
+			assert (cacheElement.getValue() % 2 == 1);
+		}
+	}
+}
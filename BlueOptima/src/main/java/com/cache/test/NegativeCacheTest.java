@@ -0,0 +1,74 @@
+package com.cache.test;
+
+import org.junit.Test;
+
+import com.cache.BloomFilter;
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.ConcurrentLRUCache;
+import com.cache.ShardedCache;
+
+public class NegativeCacheTest {
+
+	@Test
+	public void absentKeyTest() throws Exception {
+		Cache<String> cache = new ConcurrentLRUCache<String>("NegativeCache", 100, 0);
+		cache.setNegativeCaching(10, 1);
+		CacheKey missing = new CacheKey("missing");
+
+		// A key reported absent is known absent until its time to live elapses
+		assert (!cache.isKnownAbsent(missing));
+		cache.insertAbsent(missing);
+		assert (cache.isKnownAbsent(missing));
+		assert (cache.getStats().getNegativeHitCount() == 1);
+		Thread.sleep(1100);
+		assert (!cache.isKnownAbsent(missing));
+
+		// Inserting the key forgets it
+		cache.insertAbsent(missing);
+		cache.insert(new CacheElement<String>(missing, "found"));
+		assert (!cache.isKnownAbsent(missing));
+	}
+
+	@Test
+	public void negativeCacheSizeTest() throws Exception {
+		Cache<String> cache = new ShardedCache<String>("NegativeCache", 100, 0, 2);
+		cache.setNegativeCaching(10, 60);
+		for (int i = 0; i < 20; i++) {
+			cache.insertAbsent(new CacheKey(String.valueOf(i)));
+		}
+
+		// Only the newest keys are remembered, the elements are not affected
+		for (int i = 0; i < 20; i++) {
+			assert (cache.isKnownAbsent(new CacheKey(String.valueOf(i))) == (i >= 10));
+		}
+		assert (cache.getValues().isEmpty());
+	}
+
+	@Test
+	public void existenceFilterTest() throws Exception {
+		Cache<Integer> cache = new ConcurrentLRUCache<Integer>("NegativeCache", 100, 0);
+		BloomFilter filter = new BloomFilter(10000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			filter.put(new CacheKey("stored" + i));
+		}
+		cache.setExistenceFilter(filter);
+
+		// The stored keys are never reported absent, most of the others are
+		for (int i = 0; i < 10000; i++) {
+			assert (!cache.isKnownAbsent(new CacheKey("stored" + i)));
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (!cache.isKnownAbsent(new CacheKey("absent" + i))) {
+				falsePositives++;
+			}
+		}
+		assert (falsePositives < 300);
+
+		// An inserted key is added to the filter
+		cache.insert(new CacheElement<Integer>(new CacheKey("new"), 1));
+		assert (!cache.isKnownAbsent(new CacheKey("new")));
+	}
+}
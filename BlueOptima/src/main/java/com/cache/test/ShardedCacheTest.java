@@ -0,0 +1,66 @@
+package com.cache.test;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.ShardedCache;
+
+public class ShardedCacheTest {
+
+	@Test
+	public void shardMembershipTest() {
+		ShardedCache<Integer> cache = new ShardedCache<Integer>("ShardedCache", 1000, 0, 4);
+		for (int i = 0; i < 400; i++) {
+			cache.insert(new CacheElement<Integer>(new CacheKey("key" + i), i));
+		}
+
+		// Every shard takes a share of the keys
+		Map<Integer, Integer> sizes = cache.getShardSizes();
+		assert (sizes.size() == 4);
+		for (int size : sizes.values()) {
+			assert (size > 0);
+		}
+
+		for (int i = 0; i < 400; i++) {
+			assert (cache.get(new CacheKey("key" + i)).getValue() == i);
+		}
+	}
+
+	@Test
+	public void shardResizeTest() {
+		ShardedCache<Integer> cache = new ShardedCache<Integer>("ShardedCache", 1000, 0, 4);
+		for (int i = 0; i < 400; i++) {
+			cache.insert(new CacheElement<Integer>(new CacheKey("key" + i), i));
+		}
+
+		// Growing and shrinking keeps all the elements reachable
+		cache.resize(6);
+		assert (cache.getShardSizes().size() == 6);
+		for (int i = 0; i < 400; i++) {
+			assert (cache.get(new CacheKey("key" + i)).getValue() == i);
+		}
+		cache.resize(2);
+		assert (cache.getShardSizes().size() == 2);
+		assert (cache.getValues().size() == 400);
+		for (int i = 0; i < 400; i++) {
+			assert (cache.get(new CacheKey("key" + i)).getValue() == i);
+		}
+	}
+
+	@Test
+	public void shardRebalanceTest() {
+		ShardedCache<Integer> cache = new ShardedCache<Integer>("ShardedCache", 1000, 0, 4);
+		for (int i = 0; i < 400; i++) {
+			cache.insert(new CacheElement<Integer>(new CacheKey("key" + i), i));
+		}
+		int before = cache.getShardSizes().get(0);
+
+		// A lighter shard owns fewer keys
+		cache.rebalance(0, 0.25);
+		assert (cache.getShardSizes().get(0) < before);
+		assert (cache.getValues().size() == 400);
+	}
+}
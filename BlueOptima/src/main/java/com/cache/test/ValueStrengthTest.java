@@ -0,0 +1,58 @@
+package com.cache.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.ConcurrentLRUCache;
+import com.cache.HeapPressureMonitor;
+import com.cache.ValueStrength;
+
+public class ValueStrengthTest {
+
+	@Test
+	public void weakValueTest() throws Exception {
+		Cache<StringBuilder> cache = new ConcurrentLRUCache<StringBuilder>("WeakCache", 100, 0);
+		cache.setValueStrength(ValueStrength.WEAK);
+
+		StringBuilder value = new StringBuilder("value1");
+		cache.insert(new CacheElement<StringBuilder>(new CacheKey("1"), value));
+		cache.insert(new CacheElement<StringBuilder>(new CacheKey("2"), new StringBuilder("value2")));
+
+		// The value nobody else holds is reclaimed
+		for (int i = 0; i < 10 && cache.get(new CacheKey("2")) != null; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		assert (cache.get(new CacheKey("2")) == null);
+		assert (cache.get(new CacheKey("1")).getValue() == value);
+
+		cache.removeAllExpired();
+		assert (cache.getValues().size() == 1);
+	}
+
+	@Test
+	public void heapPressureTest() throws Exception {
+		CountDownLatch pressure = new CountDownLatch(1);
+		HeapPressureMonitor monitor = new HeapPressureMonitor(0.0001, 1, new HeapPressureMonitor.Listener() {
+
+			@Override
+			public void onHeapPressure(double occupancy) {
+				pressure.countDown();
+			}
+
+			@Override
+			public void onHeapRelief(double occupancy) {
+			}
+		});
+		monitor.start();
+
+		// Any live data is above such a low threshold
+		assert (pressure.await(10, TimeUnit.SECONDS));
+		monitor.shutdown();
+	}
+}
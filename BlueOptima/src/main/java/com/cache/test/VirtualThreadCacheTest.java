@@ -0,0 +1,232 @@
+package com.cache.test;
+
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.cache.Cache;
+import com.cache.CacheElement;
+import com.cache.CacheKey;
+import com.cache.CacheManager;
+import com.cache.ConcurrentLRUCache;
+
+/**
+ * Runs the cache engines under thousands of virtual threads. On a JVM without
+ * virtual threads the tasks run on a pool of platform threads instead.
+ * <p>
+ * The virtual threads pinned to their carrier while blocked are recorded with
+ * JFR (jdk.VirtualThreadPinned); the cache engines must not show up in their
+ * stacks. Run with -Dcache.benchmark=true to check that the
+ * throughput grows with the concurrent tasks, which needs a quiet machine.
+ */
+public class VirtualThreadCacheTest {
+
+	private static final int TASKS = 10000;
+
+	private static final int OPERATIONS = 100;
+
+	private static final int KEYS = 2000;
+
+	private static final boolean BENCHMARK = Boolean.getBoolean("cache.benchmark");
+
+	@Test
+	public void concurrentLRUCacheTest() throws Exception {
+		Cache<Integer> cache = new ConcurrentLRUCache<Integer>("VirtualThreadCache", 1000, 0);
+		run(cache, TASKS, TASKS);
+
+		assert (cache.getValues().size() <= 1000);
+		for (CacheElement<Integer> cacheElement : cache.getValues()) {
+			assert (cacheElement.getId().getKey().equals("key" + cacheElement.getValue()));
+		}
+	}
+
+	@Test
+	public void lruCacheTest() throws Exception {
+		Cache<Integer> cache = CacheManager.getCacheManager().<Integer> getCache("VirtualThreadCache");
+		run(cache, TASKS, TASKS);
+
+		// The cache size is 10
+		assert (cache.getValues().size() <= 10);
+		for (CacheElement<Integer> cacheElement : cache.getValues()) {
+			assert (cacheElement.getId().getKey().equals("key" + cacheElement.getValue()));
+		}
+	}
+
+	@Test
+	public void scalingTest() throws Exception {
+		if (!BENCHMARK) {
+			// Timings are meaningless on a loaded or shared machine
+			return;
+		}
+		Cache<Integer> cache = new ConcurrentLRUCache<Integer>("ScalingCache", 1000, 0);
+		run(cache, TASKS, TASKS);
+
+		// The throughput grows with the concurrent tasks, up to the processors
+		int processors = Runtime.getRuntime().availableProcessors();
+		int concurrency = Math.max(2, Math.min(8, processors));
+		double speedUp = throughput(cache, concurrency) / throughput(cache, 1);
+		assert (speedUp >= 0.5 * Math.min(concurrency, processors)) : "speed-up of " + speedUp + " with "
+				+ concurrency + " tasks on " + processors + " processors";
+	}
+
+	@Test
+	public void noPinningTest() throws Exception {
+		if (!supportsVirtualThreads()) {
+			// Platform threads are never pinned
+			return;
+		}
+		List<String> frames = pinnedFrames(() -> {
+			run(new ConcurrentLRUCache<Integer>("PinningCache", 1000, 0), TASKS, TASKS);
+			return run(CacheManager.getCacheManager().<Integer> getCache("VirtualThreadCache"), TASKS, TASKS);
+		});
+
+		// No stack of a pinned virtual thread goes through an engine
+		for (String frame : frames) {
+			assert (!frame.startsWith("com.cache.") || frame.startsWith("com.cache.test.")) : "Pinned virtual thread in "
+					+ frame;
+		}
+	}
+
+	/**
+	 * Run the tasks under a JFR recording of the virtual threads pinned to
+	 * their carrier, however briefly, and return the frames of their stacks.
+	 * The JFR API is reached through reflection, as the tests build for Java 8.
+	 *
+	 * @return the frames, as class name and method name
+	 */
+	private static List<String> pinnedFrames(Callable<?> tasks) throws Exception {
+		Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+		Class<?> settingsClass = Class.forName("jdk.jfr.EventSettings");
+		Object recording = recordingClass.getConstructor().newInstance();
+		Object settings = recordingClass.getMethod("enable", String.class).invoke(recording, "jdk.VirtualThreadPinned");
+		settingsClass.getMethod("withThreshold", Duration.class).invoke(settings, Duration.ZERO);
+		settingsClass.getMethod("withStackTrace").invoke(settings);
+
+		Path file = Files.createTempFile("pinning", ".jfr");
+		try {
+			recordingClass.getMethod("start").invoke(recording);
+			try {
+				tasks.call();
+			} finally {
+				recordingClass.getMethod("stop").invoke(recording);
+			}
+			recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+
+			List<String> frames = new ArrayList<String>();
+			Method getStackTrace = Class.forName("jdk.jfr.consumer.RecordedEvent").getMethod("getStackTrace");
+			Method getFrames = Class.forName("jdk.jfr.consumer.RecordedStackTrace").getMethod("getFrames");
+			Method getMethod = Class.forName("jdk.jfr.consumer.RecordedFrame").getMethod("getMethod");
+			Method getType = Class.forName("jdk.jfr.consumer.RecordedMethod").getMethod("getType");
+			Method getMethodName = Class.forName("jdk.jfr.consumer.RecordedMethod").getMethod("getName");
+			Method getClassName = Class.forName("jdk.jfr.consumer.RecordedClass").getMethod("getName");
+			List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+					.getMethod("readAllEvents", Path.class).invoke(null, file);
+			for (Object event : events) {
+				Object stackTrace = getStackTrace.invoke(event);
+				if (stackTrace == null) {
+					continue;
+				}
+				for (Object frame : (List<?>) getFrames.invoke(stackTrace)) {
+					Object method = getMethod.invoke(frame);
+					frames.add(getClassName.invoke(getType.invoke(method)) + "." + getMethodName.invoke(method));
+				}
+			}
+			return frames;
+		} finally {
+			recordingClass.getMethod("close").invoke(recording);
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Return the best throughput of a few runs at the given concurrency.
+	 *
+	 * @return the throughput in operations per second
+	 */
+	private static double throughput(Cache<Integer> cache, int concurrency) throws Exception {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < 3; i++) {
+			best = Math.min(best, run(cache, 1000, concurrency));
+		}
+		return 1000.0 * OPERATIONS * TimeUnit.SECONDS.toNanos(1) / Math.max(best, 1);
+	}
+
+	/**
+	 * Run a number of tasks doing random operations on the cache, at most the
+	 * given number of them at the same time.
+	 *
+	 * @return the elapsed time in nanoseconds
+	 */
+	private static long run(Cache<Integer> cache, int tasks, int concurrency) throws Exception {
+		ExecutorService executor = newExecutor();
+		Semaphore permits = new Semaphore(concurrency);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		long start = System.nanoTime();
+		for (int i = 0; i < tasks; i++) {
+			futures.add(executor.submit(() -> {
+				permits.acquireUninterruptibly();
+				try {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int j = 0; j < OPERATIONS; j++) {
+						int key = random.nextInt(KEYS);
+						CacheKey cacheKey = new CacheKey("key" + key);
+						int operation = random.nextInt(10);
+						if (operation < 7) {
+							CacheElement<Integer> cacheElement = cache.get(cacheKey);
+							assert (cacheElement == null || cacheElement.getValue() == key);
+						} else if (operation < 9) {
+							cache.insert(new CacheElement<Integer>(cacheKey, key));
+						} else {
+							cache.remove(cacheKey);
+						}
+					}
+				} finally {
+					permits.release();
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get(1, TimeUnit.MINUTES);
+		}
+		long elapsed = System.nanoTime() - start;
+		executor.shutdown();
+		return elapsed;
+	}
+
+	/**
+	 * Create an executor starting a virtual thread per task when the JVM
+	 * supports them.
+	 */
+	private static ExecutorService newExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newFixedThreadPool(64);
+		}
+	}
+
+	/**
+	 * Check whether the JVM supports virtual threads.
+	 */
+	private static boolean supportsVirtualThreads() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+}